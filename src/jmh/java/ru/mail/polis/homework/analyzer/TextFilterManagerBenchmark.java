@@ -0,0 +1,109 @@
+package ru.mail.polis.homework.analyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка одного текста менеджером со всеми типами фильтров.
+ *
+ * Корпуса: короткие комментарии, длинные вставки (логи, статьи) и комментарии, где почти в каждом есть спам.
+ * Словарь спама - от 10 до 100k слов, в обоих режимах поиска. Каждый вызов берет следующий текст корпуса,
+ * чтобы не мерить один и тот же текст, который целиком лежит в кеше процессора.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextFilterManagerBenchmark {
+
+    private static final int CORPUS_SIZE = 1024;
+    private static final String[] WORDS = {
+            "привет", "как", "дела", "сегодня", "погода", "отличная", "спасибо", "за", "статью", "очень",
+            "интересно", "hello", "world", "java", "code", "review", "merge", "request", "и", "в", "на", "не"
+    };
+    private static final String[] SMILES = {":)", ":(", ":|", "=(", ";)"};
+
+    @Param({"SHORT", "LONG", "SPAM"})
+    public String corpus;
+
+    @Param({"10", "1000", "100000"})
+    public int dictionarySize;
+
+    @Param({"SUBSTRING", "TOKEN"})
+    public SpamMode spamMode;
+
+    private TextFilterManager manager;
+    private String[] texts;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = randomWord(random, 5 + random.nextInt(8));
+        }
+        manager = new TextFilterManager(new TextAnalyzer[]{
+                TextAnalyzer.createTooLongAnalyzer(4000),
+                TextAnalyzer.createSpamAnalyzer(dictionary, spamMode),
+                TextAnalyzer.createNegativeTextAnalyzer(),
+                TextAnalyzer.createCustomAnalyzer(5)});
+
+        texts = new String[CORPUS_SIZE];
+        for (int i = 0; i < texts.length; i++) {
+            switch (corpus) {
+                case "SHORT":
+                    texts[i] = comment(random, 20 + random.nextInt(100), null);
+                    break;
+                case "LONG":
+                    texts[i] = comment(random, 2000 + random.nextInt(2000), null);
+                    break;
+                default:
+                    texts[i] = comment(random, 20 + random.nextInt(100), dictionary[random.nextInt(dictionary.length)]);
+            }
+        }
+    }
+
+    @Benchmark
+    public FilterType analyze() {
+        String text = texts[next];
+        next = (next + 1) & (CORPUS_SIZE - 1);
+        return manager.analyze(text);
+    }
+
+    /**
+     * Текст примерно из length символов из обычных слов, иногда со смайлами; spam вставляется в середину
+     */
+    private static String comment(Random random, int length, String spam) {
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            if (spam != null && text.length() >= length / 2) {
+                text.append(spam).append(' ');
+                spam = null;
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            text.append(random.nextInt(20) == 0 ? " " + SMILES[random.nextInt(SMILES.length)] + " " : " ");
+        }
+        return text.toString();
+    }
+
+    private static String randomWord(Random random, int length) {
+        char[] word = new char[length];
+        for (int i = 0; i < length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+}
@@ -0,0 +1,109 @@
+package ru.mail.polis.homework.processor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обработка одного текста цепочкой обработчиков.
+ *
+ * Цепочки: нормализация (пробелы, замена по простому выражению, заглавные), превью (то же плюс обрезание
+ * до 200 символов) и замена по выражению со ссылкой на группу, которое идет через Pattern.
+ * Корпуса: короткие комментарии и длинные вставки с лишними пробелами и переводами строк.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextProcessorManagerBenchmark {
+
+    private static final int CORPUS_SIZE = 256;
+    private static final String[] WORDS = {
+            "привет", "как", "дела", "код", "1234", "pin", "order", "#42", "java", "Straße", "mail@example"
+    };
+    private static final String[] SPACES = {" ", " ", " ", "  ", "\t", "\n", " \r\n "};
+
+    @Param({"SHORT", "LONG"})
+    public String corpus;
+
+    @Param({"NORMALIZE", "PREVIEW", "GROUP_REPLACE"})
+    public String pipeline;
+
+    private TextProcessorManager manager;
+    private String[] texts;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (pipeline) {
+            case "NORMALIZE":
+                manager = TextProcessorManager.construct(new TextProcessor[] {
+                        TextProcessor.squashWhiteSpacesProcessor(),
+                        TextProcessor.replaceFirstProcessor("(?:pin|код) ?\\d{4}", "****"),
+                        TextProcessor.upperCaseProcessor()
+                });
+                break;
+            case "PREVIEW":
+                manager = TextProcessorManager.construct(new TextProcessor[] {
+                        TextProcessor.squashWhiteSpacesProcessor(),
+                        TextProcessor.replaceFirstProcessor("(?:pin|код) ?\\d{4}", "****"),
+                        TextProcessor.upperCaseProcessor(),
+                        TextProcessor.trimProcessor(200)
+                });
+                break;
+            default:
+                manager = TextProcessorManager.construct(new TextProcessor[] {
+                        TextProcessor.replaceFirstProcessor("(\\w+)@(\\w+)", "$2"),
+                        TextProcessor.trimProcessor(200)
+                });
+        }
+
+        Random random = new Random(42);
+        int length = "SHORT".equals(corpus) ? 100 : 100_000;
+        texts = new String[CORPUS_SIZE];
+        for (int i = 0; i < texts.length; i++) {
+            StringBuilder text = new StringBuilder(length + 16);
+            while (text.length() < length) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(SPACES[random.nextInt(SPACES.length)]);
+            }
+            texts[i] = text.toString();
+        }
+    }
+
+    @Benchmark
+    public String processText() {
+        return manager.processText(nextText());
+    }
+
+    /**
+     * Ленивый результат без копирования, который потребитель читает целиком через charAt и length.
+     * Контрольная сумма возвращается, чтобы чтение не выбросил JIT: без него замерялось бы только
+     * создание обертки.
+     */
+    @Benchmark
+    public int processView() {
+        CharSequence view = manager.processView(nextText());
+        int checksum = 0;
+        for (int i = 0; i < view.length(); i++) {
+            checksum = 31 * checksum + view.charAt(i);
+        }
+        return checksum;
+    }
+
+    private String nextText() {
+        String text = texts[next];
+        next = (next + 1) & (CORPUS_SIZE - 1);
+        return text;
+    }
+}
@@ -0,0 +1,133 @@
+package ru.mail.polis.homework.analyzer;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Порядок запуска частей проверки (см. FusedScanner: проверка длины, общий проход, свои фильтры),
+ * который подстраивается под реальную нагрузку.
+ *
+ * Для каждой части копится среднее время запуска и доля срабатываний, и части сортируются
+ * по "цене одного срабатывания" = время / доля срабатываний: дешевые и часто срабатывающие идут первыми
+ * (например, проверка длины стоит O(1) и почти всегда окажется в начале).
+ *
+ * Порядок запуска не влияет на результат: TextFilterManager пропускает части, которые уже не могут
+ * дать более приоритетный тип, так что вердикт всегда совпадает с проверкой в порядке приоритета.
+ *
+ * Статистика пишется в LongAdder без блокировок. Примерно раз в REORDER_INTERVAL проверок один из потоков
+ * сворачивает накопленное в скользящие средние и публикует новый порядок через volatile поле.
+ */
+final class AdaptiveOrder {
+
+    private static final int REORDER_INTERVAL = 1024;
+    /**
+     * Вес старых оценок при обновлении, чтобы порядок успевал за изменением потока текстов
+     */
+    private static final double HISTORY_WEIGHT = 0.5;
+    /**
+     * Нижняя граница доли срабатываний, чтобы фильтры без срабатываний тоже сравнивались по времени
+     */
+    private static final double MIN_HIT_RATE = 1e-3;
+
+    private final int units;
+    private final LongAdder[] calls;
+    private final LongAdder[] hits;
+    private final LongAdder[] nanos;
+    private final AtomicBoolean reordering = new AtomicBoolean();
+    /**
+     * Оценки, меняются только потоком, который захватил reordering
+     */
+    private final double[] cost;
+    private final double[] hitRate;
+
+    private volatile int[] order;
+
+    /**
+     * @param units сколько частей у проверки, начальный порядок запуска - по возрастанию номера
+     */
+    AdaptiveOrder(int units) {
+        this.units = units;
+        this.calls = newAdders(units);
+        this.hits = newAdders(units);
+        this.nanos = newAdders(units);
+        this.cost = new double[units];
+        this.hitRate = new double[units];
+        Arrays.fill(cost, Double.NaN);
+        int[] initial = new int[units];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = i;
+        }
+        this.order = initial;
+    }
+
+    /**
+     * Текущий порядок запуска: номера частей. Массив менять нельзя.
+     */
+    int[] order() {
+        if (ThreadLocalRandom.current().nextInt(REORDER_INTERVAL) == 0) {
+            reorder();
+        }
+        return order;
+    }
+
+    void record(int unit, boolean hit, long elapsedNanos) {
+        calls[unit].increment();
+        if (hit) {
+            hits[unit].increment();
+        }
+        nanos[unit].add(elapsedNanos);
+    }
+
+    private void reorder() {
+        if (!reordering.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int i = 0; i < units; i++) {
+                long periodCalls = calls[i].sumThenReset();
+                long periodHits = hits[i].sumThenReset();
+                long periodNanos = nanos[i].sumThenReset();
+                if (periodCalls == 0) {
+                    continue;
+                }
+                double periodCost = (double) periodNanos / periodCalls;
+                double periodRate = (double) periodHits / periodCalls;
+                if (Double.isNaN(cost[i])) {
+                    cost[i] = periodCost;
+                    hitRate[i] = periodRate;
+                } else {
+                    cost[i] = HISTORY_WEIGHT * cost[i] + (1 - HISTORY_WEIGHT) * periodCost;
+                    hitRate[i] = HISTORY_WEIGHT * hitRate[i] + (1 - HISTORY_WEIGHT) * periodRate;
+                }
+            }
+            order = Arrays.stream(order)
+                    .boxed()
+                    .sorted(Comparator.<Integer>comparingDouble(this::rank).thenComparingInt(i -> i))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        } finally {
+            reordering.set(false);
+        }
+    }
+
+    /**
+     * Части, про которые еще ничего не известно, остаются в конце в начальном порядке
+     */
+    private double rank(int unit) {
+        if (Double.isNaN(cost[unit])) {
+            return Double.MAX_VALUE;
+        }
+        return cost[unit] / Math.max(hitRate[unit], MIN_HIT_RATE);
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,242 @@
+package ru.mail.polis.homework.analyzer;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Автомат Ахо-Корасик для поиска любого из набора шаблонов за один линейный проход по тексту.
+ *
+ * У каждого шаблона есть метка (целое число). В состоянии автомата хранится минимальная метка
+ * среди всех шаблонов, которые в нем заканчиваются, - так один автомат может искать сразу
+ * несколько словарей с разным приоритетом.
+ *
+ * Автомат строится один раз в конструкторе и дальше не меняется, поэтому один экземпляр
+ * можно безопасно использовать из разных потоков.
+ *
+ * Переходы хранятся в плоских массивах (формат CSR): исходящие ребра состояния s лежат
+ * в edgeChars/edgeTargets на отрезке [edgeOffsets[s], edgeOffsets[s + 1]) и отсортированы по символу.
+ * Состояния пронумерованы в порядке обхода в ширину, корень - 0.
+ */
+final class AhoCorasickAutomaton {
+
+    static final int ROOT = 0;
+
+    /**
+     * Метка состояния, в котором не заканчивается ни один шаблон.
+     */
+    static final int NO_OUTPUT = Integer.MAX_VALUE;
+
+    private static final int NO_NODE = -1;
+
+    private final int[] edgeOffsets;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    /**
+     * output[s] - минимальная метка шаблонов, которые заканчиваются в состоянии s
+     * (сами по себе или как суффикс по суффиксным ссылкам), либо NO_OUTPUT.
+     */
+    private final int[] output;
+    private final int topLabel;
+
+    /**
+     * Все шаблоны с меткой 0. Пустые строки и null в наборе шаблонов пропускаются.
+     */
+    AhoCorasickAutomaton(String[] patterns) {
+        this(patterns, new int[patterns.length]);
+    }
+
+    /**
+     * @param labels метка для каждого шаблона, неотрицательная
+     */
+    AhoCorasickAutomaton(String[] patterns, int[] labels) {
+        Integer[] sorted = new Integer[patterns.length];
+        int count = 0;
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i] != null && !patterns[i].isEmpty()) {
+                sorted[count++] = i;
+            }
+        }
+        sorted = Arrays.copyOf(sorted, count);
+        Arrays.sort(sorted, Comparator.comparing(i -> patterns[i]));
+
+        Trie trie = new Trie(patterns, labels, sorted);
+        int size = trie.size;
+
+        // перенумеровываем вершины бора в порядке обхода в ширину
+        int[] order = new int[size];
+        int[] newId = new int[size];
+        int head = 0;
+        int tail = 0;
+        order[tail++] = ROOT;
+        while (head < tail) {
+            int node = order[head++];
+            newId[node] = head - 1;
+            for (int child = trie.firstChild[node]; child != NO_NODE; child = trie.nextSibling[child]) {
+                order[tail++] = child;
+            }
+        }
+
+        edgeOffsets = new int[size + 1];
+        edgeChars = new char[size - 1];
+        edgeTargets = new int[size - 1];
+        output = new int[size];
+        int edge = 0;
+        for (int state = 0; state < size; state++) {
+            int node = order[state];
+            edgeOffsets[state] = edge;
+            output[state] = trie.output[node];
+            for (int child = trie.firstChild[node]; child != NO_NODE; child = trie.nextSibling[child]) {
+                edgeChars[edge] = trie.label[child];
+                edgeTargets[edge] = newId[child];
+                edge++;
+            }
+        }
+        edgeOffsets[size] = edge;
+
+        // суффиксные ссылки; состояния уже идут в порядке BFS, так что ссылка всегда указывает назад
+        fail = new int[size];
+        for (int state = 0; state < size; state++) {
+            for (int i = edgeOffsets[state]; i < edgeOffsets[state + 1]; i++) {
+                int child = edgeTargets[i];
+                if (state == ROOT) {
+                    fail[child] = ROOT;
+                } else {
+                    fail[child] = step(fail[state], edgeChars[i]);
+                }
+                output[child] = Math.min(output[child], output[fail[child]]);
+            }
+        }
+
+        int top = NO_OUTPUT;
+        for (int label : output) {
+            top = Math.min(top, label);
+        }
+        topLabel = top;
+    }
+
+    /**
+     * Переход из состояния state по символу c с учетом суффиксных ссылок.
+     */
+    int step(int state, char c) {
+        int current = state;
+        while (true) {
+            int next = goTo(current, c);
+            if (next != NO_NODE) {
+                return next;
+            }
+            if (current == ROOT) {
+                return ROOT;
+            }
+            current = fail[current];
+        }
+    }
+
+    /**
+     * Минимальная метка среди шаблонов, заканчивающихся в состоянии state, либо NO_OUTPUT.
+     */
+    int output(int state) {
+        return output[state];
+    }
+
+    /**
+     * Минимальная метка среди всех шаблонов автомата, либо NO_OUTPUT, если шаблонов нет.
+     */
+    int topLabel() {
+        return topLabel;
+    }
+
+    /**
+     * Есть ли в тексте хотя бы одно вхождение какого-то шаблона.
+     */
+    boolean matches(CharSequence text) {
+        if (topLabel == NO_OUTPUT) {
+            return false;
+        }
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            if (output[state] != NO_OUTPUT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int goTo(int state, char c) {
+        int low = edgeOffsets[state];
+        int high = edgeOffsets[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * Временный бор, нужен только на время построения автомата.
+     * Шаблоны приходят отсортированными, поэтому у каждой вершины нужный ребенок - либо последний
+     * добавленный, либо его еще нет. Благодаря этому дети сразу лежат в порядке возрастания символа.
+     */
+    private static final class Trie {
+        private int[] firstChild;
+        private int[] lastChild;
+        private int[] nextSibling;
+        private char[] label;
+        private int[] output;
+        private int size;
+
+        /**
+         * @param sorted индексы непустых шаблонов в порядке возрастания самих шаблонов
+         */
+        private Trie(String[] patterns, int[] labels, Integer[] sorted) {
+            int capacity = 1;
+            for (int index : sorted) {
+                capacity += patterns[index].length();
+            }
+            firstChild = new int[capacity];
+            lastChild = new int[capacity];
+            nextSibling = new int[capacity];
+            label = new char[capacity];
+            output = new int[capacity];
+            newNode('\0');
+
+            for (int index : sorted) {
+                String pattern = patterns[index];
+                int node = ROOT;
+                for (int i = 0; i < pattern.length(); i++) {
+                    char c = pattern.charAt(i);
+                    int child = lastChild[node];
+                    if (child == NO_NODE || label[child] != c) {
+                        child = newNode(c);
+                        if (lastChild[node] == NO_NODE) {
+                            firstChild[node] = child;
+                        } else {
+                            nextSibling[lastChild[node]] = child;
+                        }
+                        lastChild[node] = child;
+                    }
+                    node = child;
+                }
+                output[node] = Math.min(output[node], labels[index]);
+            }
+        }
+
+        private int newNode(char c) {
+            int node = size++;
+            firstChild[node] = NO_NODE;
+            lastChild[node] = NO_NODE;
+            nextSibling[node] = NO_NODE;
+            label[node] = c;
+            output[node] = NO_OUTPUT;
+            return node;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package ru.mail.polis.homework.analyzer;
+
+import java.nio.CharBuffer;
+
+/**
+ * Потоковая проверка одного текста: текст подается кусками через feed, все фильтры
+ * помнят свое состояние между кусками (состояние автомата, текущий токен, длину текущего повтора символа,
+ * количество прочитанных символов), так что слово спама, разрезанное на два куска, все равно найдется.
+ *
+ * Как только вердикт уже не может измениться, feed возвращает true и остаток текста можно не читать.
+ * Например, один TOO_LONG фильтр выносит вердикт после maxLength + 1 символа. Но если среди фильтров есть SPAM,
+ * то читать приходится дальше, потому что SPAM важнее.
+ *
+ * Сессия одноразовая и не потокобезопасная, для каждого текста нужна новая (TextFilterManager.newSession).
+ */
+public final class AnalysisSession {
+
+    private static final FilterType[] TYPES = FilterType.values();
+    private static final int SPAM = FilterType.SPAM.ordinal();
+    private static final int TOO_LONG = FilterType.TOO_LONG.ordinal();
+    private static final int CUSTOM = FilterType.CUSTOM.ordinal();
+    private static final int GOOD = FilterType.GOOD.ordinal();
+
+    private final FusedScanner scanner;
+    /**
+     * Текст целиком, если он нужен фильтрам, которые не умеют работать кусками, иначе null
+     */
+    private final StringBuilder text;
+
+    private long count;
+    private int best;
+    private int state;
+    /**
+     * Текущий токен для словарей SpamMode.TOKEN: первые maxTokenLength символов, длина и хеш
+     */
+    private final char[] token;
+    private final CharBuffer tokenView;
+    private int tokenLength;
+    private long tokenHash;
+    private int repeats;
+    private char previous;
+    private boolean scanAutomaton;
+    private boolean scanTokens;
+    private boolean scanRepeats;
+    private boolean watchLength;
+
+    /**
+     * @param knownLength длина текста, если известна заранее, иначе -1
+     */
+    AnalysisSession(FusedScanner scanner, long knownLength) {
+        this.scanner = scanner;
+        this.text = knownLength < 0 && scanner.needsFullText() ? new StringBuilder() : null;
+        this.token = new char[scanner.maxTokenLength];
+        this.tokenView = CharBuffer.wrap(token);
+        reset(knownLength, FilterType.GOOD);
+    }
+
+    /**
+     * Готовит сессию к новому тексту, не выделяя память. Сессия, созданная с knownLength >= 0,
+     * не копит текст, поэтому переиспользовать так можно только ее и только с известной длиной.
+     *
+     * @param bound вердикт, который уже известен: искать имеет смысл только типы приоритетнее него
+     */
+    void reset(long knownLength, FilterType bound) {
+        count = 0;
+        // если длина неизвестна, символов пока 0: при отрицательном пределе TOO_LONG известен и для пустого текста
+        best = Math.min(bound.ordinal(), Math.max(knownLength, 0) > scanner.maxLength ? TOO_LONG : GOOD);
+        state = AhoCorasickAutomaton.ROOT;
+        tokenLength = 0;
+        tokenHash = TokenDictionary.HASH_SEED;
+        repeats = 0;
+        previous = 0;
+        watchLength = knownLength < 0 && scanner.maxLength != Long.MAX_VALUE;
+        updateScans();
+    }
+
+    /**
+     * @return true, если вердикт уже известен и дальше текст можно не подавать
+     */
+    public boolean feed(CharSequence chunk) {
+        if (text != null) {
+            text.append(chunk);
+        }
+        for (int i = 0; i < chunk.length(); i++) {
+            if (!accept(chunk.charAt(i))) {
+                break;
+            }
+        }
+        return isDecided();
+    }
+
+    /**
+     * @return true, если вердикт уже известен и дальше текст можно не подавать
+     */
+    public boolean feed(char[] chunk, int offset, int length) {
+        if (text != null) {
+            text.append(chunk, offset, length);
+        }
+        for (int i = offset; i < offset + length; i++) {
+            if (!accept(chunk[i])) {
+                break;
+            }
+        }
+        return isDecided();
+    }
+
+    public boolean isDecided() {
+        return !scanAutomaton && !scanTokens && !scanRepeats && !watchLength && !othersMayWin();
+    }
+
+    /**
+     * Вердикт по всему поданному тексту. После finish сессию использовать нельзя.
+     */
+    public FilterType finish() {
+        return finish(text == null ? null : text.toString());
+    }
+
+    FilterType finish(String fullText) {
+        return scanner.checkOthers(finishScan(), fullText);
+    }
+
+    /**
+     * Вердикт встроенных фильтров по всему поданному тексту, свои фильтры не запускаются.
+     * После этого сессия больше не нужна, и ее можно сбросить для следующего текста.
+     */
+    FilterType finishScan() {
+        if (scanTokens) {
+            endToken();
+        }
+        return TYPES[best];
+    }
+
+    /**
+     * @return false, если встроенным фильтрам этот символ уже не нужен
+     */
+    private boolean accept(char c) {
+        if (!scanAutomaton && !scanTokens && !scanRepeats && !watchLength) {
+            return false;
+        }
+        count++;
+        if (watchLength && count > scanner.maxLength) {
+            watchLength = false;
+            if (TOO_LONG < best) {
+                best = TOO_LONG;
+                updateScans();
+            }
+        }
+        if (scanAutomaton) {
+            state = scanner.automaton.step(state, c);
+            int label = scanner.automaton.output(state);
+            if (label < best) {
+                best = label;
+                updateScans();
+            }
+        }
+        if (scanTokens) {
+            if (TokenDictionary.isTokenChar(c)) {
+                if (tokenLength < token.length) {
+                    token[tokenLength] = c;
+                    tokenHash = TokenDictionary.hashStep(tokenHash, c);
+                }
+                tokenLength = Math.min(tokenLength + 1, token.length + 1);
+            } else {
+                endToken();
+            }
+        }
+        if (scanRepeats) {
+            repeats = count > 1 && c == previous ? repeats + 1 : 1;
+            previous = c;
+            if (repeats > scanner.maxRepeats) {
+                best = CUSTOM;
+                updateScans();
+            }
+        }
+        return true;
+    }
+
+    private void endToken() {
+        if (tokenLength > 0 && tokenLength <= token.length) {
+            long hash = TokenDictionary.hashFinish(tokenHash);
+            for (TokenDictionary dictionary : scanner.dictionaries) {
+                if (dictionary.contains(tokenView, 0, tokenLength, hash)) {
+                    best = SPAM;
+                    updateScans();
+                    break;
+                }
+            }
+        }
+        tokenLength = 0;
+        tokenHash = TokenDictionary.HASH_SEED;
+    }
+
+    private void updateScans() {
+        scanAutomaton = scanner.automatonTop < best;
+        scanTokens = scanner.dictionaries.length > 0 && SPAM < best;
+        scanRepeats = scanner.maxRepeats >= 0 && CUSTOM < best;
+        watchLength &= TOO_LONG < best;
+    }
+
+    private boolean othersMayWin() {
+        return scanner.others.length > 0 && scanner.others[0].getType().ordinal() < best;
+    }
+}
@@ -0,0 +1,68 @@
+package ru.mail.polis.homework.analyzer;
+
+import java.util.AbstractList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Результат пакетной проверки TextFilterManager.analyzeAll: вердикт для каждого текста
+ * (в том же порядке, что и тексты) и количество текстов каждого типа.
+ */
+public final class BatchAnalysis {
+
+    private final FilterType[] verdicts;
+    private final long[] counts;
+
+    BatchAnalysis(FilterType[] verdicts, long[] counts) {
+        this.verdicts = verdicts;
+        this.counts = counts;
+    }
+
+    public int size() {
+        return verdicts.length;
+    }
+
+    public FilterType getVerdict(int index) {
+        return verdicts[index];
+    }
+
+    /**
+     * Неизменяемый список вердиктов, i-й вердикт относится к i-му тексту.
+     */
+    public List<FilterType> getVerdicts() {
+        return new VerdictList();
+    }
+
+    public long getCount(FilterType type) {
+        return counts[type.ordinal()];
+    }
+
+    /**
+     * Количество текстов по типам, типы без единого текста тоже присутствуют (с нулем).
+     */
+    public EnumMap<FilterType, Long> getCounts() {
+        EnumMap<FilterType, Long> result = new EnumMap<>(FilterType.class);
+        for (FilterType type : FilterType.values()) {
+            result.put(type, counts[type.ordinal()]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchAnalysis" + getCounts();
+    }
+
+    private final class VerdictList extends AbstractList<FilterType> implements RandomAccess {
+        @Override
+        public FilterType get(int index) {
+            return verdicts[index];
+        }
+
+        @Override
+        public int size() {
+            return verdicts.length;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package ru.mail.polis.homework.analyzer;
+
+import java.util.EnumMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики частей проверки (см. FusedScanner): сколько раз часть запускалась, сколько раз сработала
+ * и гистограмма времени одного запуска.
+ *
+ * - проверка длины пишется под TOO_LONG, свои реализации TextAnalyzer - каждая под своим типом;
+ * - общий проход, в который слиты встроенные SPAM, NEGATIVE_TEXT и CUSTOM фильтры, по типам не делится
+ * и пишется отдельно (Snapshot.getFusedPass): срабатывание - проход нашел тип важнее уже известного.
+ * GOOD - не фильтр, под него ничего не пишется.
+ *
+ * Счетчики - LongAdder, гистограмма - AtomicLongArray с корзинами по степеням двойки наносекунд,
+ * так что запись метрики не берет блокировок. Один объект можно отдать нескольким TextFilterManager.
+ *
+ * snapshot и snapshotAndReset читают каждый счетчик атомарно, но не все счетчики разом:
+ * запуски, которые идут параллельно со снятием снимка, могут попасть в него частично.
+ */
+public final class FilterMetrics {
+
+    /**
+     * Корзина i содержит запуски, которые длились [2^(i-1), 2^i) наносекунд, последняя - все, что дольше.
+     */
+    public static final int BUCKETS = 40;
+
+    private final Counters[] counters;
+    private final Counters fusedPass = new Counters();
+
+    public FilterMetrics() {
+        counters = new Counters[FilterType.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new Counters();
+        }
+    }
+
+    void record(FilterType type, boolean hit, long nanos) {
+        counters[type.ordinal()].record(hit, nanos);
+    }
+
+    void recordFusedPass(boolean hit, long nanos) {
+        fusedPass.record(hit, nanos);
+    }
+
+    public Snapshot snapshot() {
+        return collect(false);
+    }
+
+    /**
+     * Снимок и обнуление за один проход: удобно для периодического сбора метрик.
+     */
+    public Snapshot snapshotAndReset() {
+        return collect(true);
+    }
+
+    public void reset() {
+        collect(true);
+    }
+
+    private Snapshot collect(boolean reset) {
+        EnumMap<FilterType, Stats> byType = new EnumMap<>(FilterType.class);
+        for (FilterType type : FilterType.values()) {
+            if (type != FilterType.GOOD) {
+                byType.put(type, counters[type.ordinal()].collect(reset));
+            }
+        }
+        return new Snapshot(byType, fusedPass.collect(reset));
+    }
+
+    static int bucket(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)));
+    }
+
+    private static final class Counters {
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLongArray latency = new AtomicLongArray(BUCKETS);
+
+        private void record(boolean hit, long nanos) {
+            invocations.increment();
+            if (hit) {
+                hits.increment();
+            }
+            totalNanos.add(nanos);
+            latency.incrementAndGet(bucket(nanos));
+        }
+
+        private Stats collect(boolean reset) {
+            long[] histogram = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = reset ? latency.getAndSet(i, 0) : latency.get(i);
+            }
+            return new Stats(
+                    reset ? invocations.sumThenReset() : invocations.sum(),
+                    reset ? hits.sumThenReset() : hits.sum(),
+                    reset ? totalNanos.sumThenReset() : totalNanos.sum(),
+                    histogram);
+        }
+    }
+
+    /**
+     * Неизменяемый снимок всех метрик
+     */
+    public static final class Snapshot {
+        private final EnumMap<FilterType, Stats> byType;
+        private final Stats fusedPass;
+
+        private Snapshot(EnumMap<FilterType, Stats> byType, Stats fusedPass) {
+            this.byType = byType;
+            this.fusedPass = fusedPass;
+        }
+
+        /**
+         * Метрики проверки длины (TOO_LONG) и своих фильтров этого типа, null для GOOD
+         */
+        public Stats get(FilterType type) {
+            return byType.get(type);
+        }
+
+        /**
+         * Метрики общего прохода по встроенным SPAM, NEGATIVE_TEXT и CUSTOM фильтрам
+         */
+        public Stats getFusedPass() {
+            return fusedPass;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" + byType + ", fusedPass=" + fusedPass + '}';
+        }
+    }
+
+    /**
+     * Неизменяемый снимок метрик одного типа фильтров.
+     */
+    public static final class Stats {
+        private final long invocations;
+        private final long hits;
+        private final long totalNanos;
+        private final long[] latency;
+
+        private Stats(long invocations, long hits, long totalNanos, long[] latency) {
+            this.invocations = invocations;
+            this.hits = hits;
+            this.totalNanos = totalNanos;
+            this.latency = latency;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * Копия гистограммы, см. FilterMetrics.BUCKETS
+         */
+        public long[] getLatencyHistogram() {
+            return latency.clone();
+        }
+
+        /**
+         * Оценка перцентиля сверху: верхняя граница корзины, в которую он попал.
+         *
+         * @param percentile от 0 до 100
+         */
+        public long getLatencyPercentileNanos(double percentile) {
+            long total = 0;
+            for (long count : latency) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < latency.length; i++) {
+                seen += latency[i];
+                if (seen >= rank && seen > 0) {
+                    return i == latency.length - 1 ? Long.MAX_VALUE : 1L << i;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{invocations=" + invocations
+                    + ", hits=" + hits
+                    + ", avgNanos=" + (invocations == 0 ? 0 : totalNanos / invocations)
+                    + ", p99Nanos=" + getLatencyPercentileNanos(99)
+                    + '}';
+        }
+    }
+}
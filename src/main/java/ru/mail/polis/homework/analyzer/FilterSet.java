@@ -0,0 +1,46 @@
+package ru.mail.polis.homework.analyzer;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Скомпилированный набор фильтров TextFilterManager: фильтры в порядке приоритета, общий сканер
+ * и статистика для адаптивного порядка.
+ *
+ * Набор после создания не меняется. При перезагрузке фильтров строится новый набор, и менеджер
+ * подменяет ссылку на него одним атомарным действием, так что проверка, которая уже взяла старый набор,
+ * доходит до конца на нем и ничего не ждет.
+ */
+final class FilterSet {
+
+    final TextAnalyzer[] filters;
+    final FusedScanner scanner;
+    final AdaptiveOrder adaptiveOrder;
+    /**
+     * Номер набора, растет с каждой перезагрузкой. По нему кеш отличает вердикты старых наборов.
+     */
+    final long generation;
+
+    FilterSet(TextAnalyzer[] filters, long generation) {
+        this.filters = Arrays.copyOf(filters, filters.length);
+        Arrays.sort(this.filters, Comparator.comparing(TextAnalyzer::getType));
+        this.scanner = new FusedScanner(this.filters);
+        this.adaptiveOrder = new AdaptiveOrder(this.scanner.unitCount());
+        this.generation = generation;
+    }
+
+    /**
+     * Те же фильтры, но встроенные фильтры спама заменены одним новым на словаре spam
+     */
+    TextAnalyzer[] withSpam(String[] spam, SpamMode mode) {
+        TextAnalyzer[] result = new TextAnalyzer[filters.length + 1];
+        int count = 0;
+        for (TextAnalyzer filter : filters) {
+            if (!(filter instanceof SpamAnalyzer) && !(filter instanceof TokenSpamAnalyzer)) {
+                result[count++] = filter;
+            }
+        }
+        result[count++] = TextAnalyzer.createSpamAnalyzer(spam, mode);
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -2,6 +2,14 @@ package ru.mail.polis.homework.analyzer;
 
 /**
  * Типы фильтров (2 тугрика)
+ *
+ * Порядок констант задает приоритет: чем раньше объявлен тип, тем он важнее.
+ * GOOD всегда последний - это результат, когда ни один фильтр не сработал.
  */
 public enum FilterType {
+    SPAM,
+    TOO_LONG,
+    NEGATIVE_TEXT,
+    CUSTOM,
+    GOOD
 }
@@ -0,0 +1,212 @@
+package ru.mail.polis.homework.analyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Все фильтры TextFilterManager, собранные в один проход по тексту.
+ *
+ * - TOO_LONG проверяется за O(1) по длине строки (берется самый строгий предел);
+ * - словари всех SPAM фильтров и смайлы NEGATIVE_TEXT объединяются в один автомат Ахо-Корасик,
+ * меткой шаблона служит ordinal его типа, так что автомат сразу говорит самый приоритетный тип;
+ * - SPAM фильтры в режиме TOKEN режут текст на токены в том же цикле и проверяют их по своим словарям;
+ * - CUSTOM (флуд) считается в том же цикле по символам.
+ *
+ * Проход останавливается, как только результат уже нельзя улучшить: например, после SPAM
+ * дальше читать текст бессмысленно, а после NEGATIVE_TEXT имеет смысл искать только SPAM.
+ *
+ * Фильтры, про устройство которых мы ничего не знаем (свои реализации TextAnalyzer),
+ * проверяются после прохода по старинке и только если могут дать более приоритетный результат.
+ *
+ * Для адаптивного порядка (см. AdaptiveOrder) проверка разбита на части: проверка длины, общий проход
+ * по остальным встроенным фильтрам и каждый свой фильтр. Части можно запускать в любом порядке,
+ * а встроенные фильтры внутри общего прохода так и остаются слитыми.
+ *
+ * Сам сканер неизменяемый и потокобезопасный, состояние одного прохода живет в AnalysisSession,
+ * так что текст можно подавать и целиком, и кусками. Для целой строки сессия своя у каждого потока
+ * и переиспользуется, так что analyze(String) ничего не выделяет.
+ */
+final class FusedScanner {
+
+    final long maxLength;
+    /**
+     * null, если нет ни SPAM, ни NEGATIVE_TEXT фильтров
+     */
+    final AhoCorasickAutomaton automaton;
+    final int automatonTop;
+    final TokenDictionary[] dictionaries;
+    final int maxTokenLength;
+    /**
+     * -1, если нет CUSTOM фильтров
+     */
+    final int maxRepeats;
+    final TextAnalyzer[] others;
+    /**
+     * Номера частей проверки, -1 если такой части нет. Свои фильтры идут за ними, начиная с firstOther.
+     */
+    final int lengthUnit;
+    final int contentUnit;
+    final int firstOther;
+    /**
+     * Самый приоритетный тип, который может дать часть: если он не лучше уже найденного, часть не нужна
+     */
+    private final FilterType[] unitTops;
+    /**
+     * Части по порядку номеров: длина, общий проход, свои фильтры по приоритету. Массив менять нельзя.
+     */
+    final int[] unitOrder;
+    private final ThreadLocal<AnalysisSession> session;
+
+    FusedScanner(TextAnalyzer[] filters) {
+        long length = Long.MAX_VALUE;
+        int repeats = Integer.MAX_VALUE;
+        List<String> patterns = new ArrayList<>();
+        List<Integer> labels = new ArrayList<>();
+        List<TokenDictionary> tokenDictionaries = new ArrayList<>();
+        List<TextAnalyzer> rest = new ArrayList<>();
+        for (TextAnalyzer filter : filters) {
+            if (filter instanceof TooLongAnalyzer) {
+                length = Math.min(length, ((TooLongAnalyzer) filter).getMaxLength());
+            } else if (filter instanceof SpamAnalyzer) {
+                addPatterns(patterns, labels, ((SpamAnalyzer) filter).getSpam(), FilterType.SPAM);
+            } else if (filter instanceof TokenSpamAnalyzer) {
+                tokenDictionaries.add(((TokenSpamAnalyzer) filter).getDictionary());
+                addPatterns(patterns, labels, ((TokenSpamAnalyzer) filter).getPhrases(), FilterType.SPAM);
+            } else if (filter instanceof NegativeTextAnalyzer) {
+                addPatterns(patterns, labels, NegativeTextAnalyzer.NEGATIVE_SMILES, FilterType.NEGATIVE_TEXT);
+            } else if (filter instanceof RepeatedCharsAnalyzer) {
+                repeats = Math.min(repeats, ((RepeatedCharsAnalyzer) filter).getMaxRepeats());
+            } else {
+                rest.add(filter);
+            }
+        }
+        this.maxLength = length;
+        this.maxRepeats = repeats == Integer.MAX_VALUE ? -1 : Math.max(repeats, 0);
+        this.dictionaries = tokenDictionaries.toArray(new TokenDictionary[0]);
+        this.maxTokenLength = tokenDictionaries.stream().mapToInt(TokenDictionary::getMaxTokenLength).max().orElse(0);
+
+        AhoCorasickAutomaton compiled = null;
+        if (!patterns.isEmpty()) {
+            compiled = new AhoCorasickAutomaton(
+                    patterns.toArray(new String[0]),
+                    labels.stream().mapToInt(Integer::intValue).toArray());
+            if (compiled.topLabel() == AhoCorasickAutomaton.NO_OUTPUT) {
+                compiled = null;
+            }
+        }
+        this.automaton = compiled;
+        this.automatonTop = compiled == null ? FilterType.GOOD.ordinal() : compiled.topLabel();
+
+        this.others = rest.toArray(new TextAnalyzer[0]);
+        Arrays.sort(this.others, Comparator.comparing(TextAnalyzer::getType));
+
+        int contentTop = automatonTop;
+        if (maxRepeats >= 0) {
+            contentTop = Math.min(contentTop, FilterType.CUSTOM.ordinal());
+        }
+        if (dictionaries.length > 0) {
+            contentTop = FilterType.SPAM.ordinal();
+        }
+        List<FilterType> tops = new ArrayList<>();
+        this.lengthUnit = maxLength == Long.MAX_VALUE ? -1 : addUnit(tops, FilterType.TOO_LONG);
+        this.contentUnit = contentTop == FilterType.GOOD.ordinal()
+                ? -1
+                : addUnit(tops, FilterType.values()[contentTop]);
+        this.firstOther = tops.size();
+        for (TextAnalyzer other : others) {
+            tops.add(other.getType());
+        }
+        this.unitTops = tops.toArray(new FilterType[0]);
+        this.unitOrder = new int[unitTops.length];
+        for (int i = 0; i < unitOrder.length; i++) {
+            unitOrder[i] = i;
+        }
+        this.session = ThreadLocal.withInitial(() -> new AnalysisSession(this, 0));
+    }
+
+    FilterType analyze(String text) {
+        return checkOthers(scan(text), text);
+    }
+
+    /**
+     * Вердикт только встроенных фильтров, одним проходом по тексту
+     */
+    FilterType scan(String text) {
+        return scan(text, text.length(), FilterType.GOOD);
+    }
+
+    /**
+     * Сколько частей у проверки
+     */
+    int unitCount() {
+        return unitTops.length;
+    }
+
+    FilterType unitTop(int unit) {
+        return unitTops[unit];
+    }
+
+    /**
+     * Запускает одну часть проверки. Вызывающий уже убедился, что unitTop(unit) приоритетнее bound.
+     *
+     * @param bound вердикт, найденный другими частями
+     * @return тип, который дала часть, или bound, если она не нашла ничего приоритетнее
+     */
+    FilterType checkUnit(int unit, String text, FilterType bound) {
+        if (unit == lengthUnit) {
+            return text.length() > maxLength ? FilterType.TOO_LONG : bound;
+        }
+        if (unit == contentUnit) {
+            // длину проверяет своя часть, поэтому проходу она сообщается как заведомо допустимая
+            return scan(text, 0, bound);
+        }
+        TextAnalyzer other = others[unit - firstOther];
+        return other.analyze(text) ? other.getType() : bound;
+    }
+
+    private FilterType scan(String text, long knownLength, FilterType bound) {
+        AnalysisSession current = session.get();
+        current.reset(knownLength, bound);
+        current.feed(text);
+        // сессия отпускается до запуска своих фильтров: такой фильтр может сам проверить текст
+        // в этом же потоке и переиспользовать ее
+        return current.finishScan();
+    }
+
+    /**
+     * Проверяет текст своими фильтрами, которые могут дать тип приоритетнее, чем scanned
+     */
+    FilterType checkOthers(FilterType scanned, String text) {
+        for (TextAnalyzer other : others) {
+            if (other.getType().compareTo(scanned) >= 0) {
+                break;
+            }
+            if (other.analyze(text)) {
+                return other.getType();
+            }
+        }
+        return scanned;
+    }
+
+    /**
+     * Нужно ли копить весь текст при потоковой проверке: фильтрам, которые не умеют работать
+     * кусками, в конце придется отдать текст целиком.
+     */
+    boolean needsFullText() {
+        return others.length > 0;
+    }
+
+    private static int addUnit(List<FilterType> tops, FilterType top) {
+        tops.add(top);
+        return tops.size() - 1;
+    }
+
+    private static void addPatterns(List<String> patterns, List<Integer> labels, String[] words, FilterType type) {
+        for (String word : words) {
+            patterns.add(word);
+            labels.add(type.ordinal());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.mail.polis.homework.analyzer;
+
+/**
+ * Срабатывает на грустные смайлы.
+ */
+final class NegativeTextAnalyzer implements TextAnalyzer {
+
+    static final String[] NEGATIVE_SMILES = {"=(", ":(", ":|"};
+
+    private static final AhoCorasickAutomaton AUTOMATON = new AhoCorasickAutomaton(NEGATIVE_SMILES);
+
+    @Override
+    public FilterType getType() {
+        return FilterType.NEGATIVE_TEXT;
+    }
+
+    @Override
+    public boolean analyze(String text) {
+        return AUTOMATON.matches(text);
+    }
+}
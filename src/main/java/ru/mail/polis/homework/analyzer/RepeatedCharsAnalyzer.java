@@ -0,0 +1,38 @@
+package ru.mail.polis.homework.analyzer;
+
+/**
+ * Свой фильтр: срабатывает на "флуд", когда один и тот же символ повторяется подряд
+ * больше maxRepeats раз ("Ооооооочень", "!!!!!!!!").
+ */
+final class RepeatedCharsAnalyzer implements TextAnalyzer {
+
+    private final int maxRepeats;
+
+    RepeatedCharsAnalyzer(int maxRepeats) {
+        this.maxRepeats = maxRepeats;
+    }
+
+    int getMaxRepeats() {
+        return maxRepeats;
+    }
+
+    @Override
+    public FilterType getType() {
+        return FilterType.CUSTOM;
+    }
+
+    @Override
+    public boolean analyze(String text) {
+        int repeats = 0;
+        char previous = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            repeats = i > 0 && c == previous ? repeats + 1 : 1;
+            if (repeats > maxRepeats) {
+                return true;
+            }
+            previous = c;
+        }
+        return false;
+    }
+}
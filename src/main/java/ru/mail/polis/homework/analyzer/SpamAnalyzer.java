@@ -0,0 +1,54 @@
+package ru.mail.polis.homework.analyzer;
+
+/**
+ * Срабатывает, если в тексте встречается хотя бы одно слово из словаря спама.
+ * Весь словарь компилируется в автомат Ахо-Корасик, поэтому проверка - один проход по тексту,
+ * сколько бы слов ни было в словаре.
+ *
+ * Автомат строится при первом вызове analyze: внутри TextFilterManager словарь входит в общий автомат
+ * FusedScanner, и собственный фильтру не нужен, так что большой словарь не компилируется дважды.
+ */
+final class SpamAnalyzer implements TextAnalyzer {
+
+    private final String[] spam;
+    /**
+     * null, пока фильтр ни разу не вызывали напрямую
+     */
+    private volatile AhoCorasickAutomaton automaton;
+
+    SpamAnalyzer(String[] spam) {
+        this.spam = spam.clone();
+    }
+
+    /**
+     * Словарь нужен TextFilterManager, чтобы собрать общий автомат для всех фильтров.
+     * Массив не копируется, менять его нельзя.
+     */
+    String[] getSpam() {
+        return spam;
+    }
+
+    @Override
+    public FilterType getType() {
+        return FilterType.SPAM;
+    }
+
+    @Override
+    public boolean analyze(String text) {
+        return automaton().matches(text);
+    }
+
+    private AhoCorasickAutomaton automaton() {
+        AhoCorasickAutomaton compiled = automaton;
+        if (compiled == null) {
+            synchronized (this) {
+                compiled = automaton;
+                if (compiled == null) {
+                    compiled = new AhoCorasickAutomaton(spam);
+                    automaton = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+}
@@ -0,0 +1,17 @@
+package ru.mail.polis.homework.analyzer;
+
+/**
+ * Как SPAM фильтр ищет слова словаря в тексте.
+ */
+public enum SpamMode {
+    /**
+     * Слово спама может быть любой подстрокой текста ("смс" найдется и в "смска")
+     */
+    SUBSTRING,
+    /**
+     * Слово спама должно совпасть с целым токеном текста (максимальной цепочкой букв и цифр):
+     * "смс" найдется в "код из смс!", но не в "смска". Для словарей на сотни тысяч слов,
+     * см. TextAnalyzer.createSpamAnalyzer(String[], SpamMode)
+     */
+    TOKEN
+}
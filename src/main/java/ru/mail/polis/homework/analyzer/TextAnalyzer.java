@@ -17,21 +17,58 @@ package ru.mail.polis.homework.analyzer;
 public interface TextAnalyzer {
 
     static TextAnalyzer createTooLongAnalyzer(long maxLength) {
-        return null;
+        return new TooLongAnalyzer(maxLength);
     }
 
+    /**
+     * Словарь компилируется в автомат Ахо-Корасик один раз, при первой проверке самим фильтром
+     * (в TextFilterManager он входит в общий автомат, и отдельный не строится).
+     * Фильтр можно использовать из разных потоков.
+     * Пустые строки в словаре игнорируются.
+     */
     static TextAnalyzer createSpamAnalyzer(String[] spam) {
-        return null;
+        return createSpamAnalyzer(spam, SpamMode.SUBSTRING);
+    }
+
+    /**
+     * В режиме TOKEN текст один раз режется на токены, и каждый токен проверяется сначала компактным
+     * фильтром Блума, а потом точной хеш-таблицей - для словарей на 100k+ слов это намного экономнее по памяти,
+     * чем автомат, и время проверки не зависит от размера словаря.
+     * Слова словаря, которые не являются одним токеном, в этом режиме ищутся как подстроки.
+     */
+    static TextAnalyzer createSpamAnalyzer(String[] spam, SpamMode mode) {
+        if (mode == SpamMode.TOKEN) {
+            return new TokenSpamAnalyzer(spam);
+        }
+        return new SpamAnalyzer(spam);
     }
 
     static TextAnalyzer createNegativeTextAnalyzer() {
-        return null;
+        return new NegativeTextAnalyzer();
     }
 
     /**
      * придумать свой фильтр
+     *
+     * Фильтр флуда: срабатывает, если какой-то символ повторяется подряд больше something раз.
+     *
+     * @param something максимально допустимое число повторов, должно быть числом
      */
     static <T> TextAnalyzer createCustomAnalyzer(T something) {
-        return null;
+        if (!(something instanceof Number)) {
+            throw new IllegalArgumentException("Max repeats must be a number: " + something);
+        }
+        return new RepeatedCharsAnalyzer(((Number) something).intValue());
     }
+
+    /**
+     * Тип фильтра, по нему же определяется приоритет фильтра в TextFilterManager
+     */
+    FilterType getType();
+
+    /**
+     * @param text не null
+     * @return true, если фильтр сработал на этом тексте
+     */
+    boolean analyze(String text);
 }
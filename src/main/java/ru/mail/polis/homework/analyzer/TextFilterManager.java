@@ -1,5 +1,18 @@
 package ru.mail.polis.homework.analyzer;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Задание написать систему фильтрации комментариев.
@@ -33,19 +46,289 @@ package ru.mail.polis.homework.analyzer;
  */
 public class TextFilterManager {
 
+    /**
+     * Меньше этого кусок пакета не делится: на коротких кусках накладные расходы fork/join дороже проверки.
+     */
+    private static final int MIN_BATCH_CHUNK = 64;
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final int READ_CHUNK = 8192;
+
+    /**
+     * Текущий набор фильтров. Ссылка общая для этого менеджера и всех, что получены из него через with-методы,
+     * поэтому перезагрузка видна им всем.
+     */
+    private final AtomicReference<FilterSet> filterSet;
+    /**
+     * null, если метрики не собираются
+     */
+    private final FilterMetrics metrics;
+    /**
+     * Запускать ли части проверки по одной в порядке, который подбирает AdaptiveOrder набора
+     */
+    private final boolean adaptiveOrder;
+    /**
+     * null, если вердикты не кешируются
+     */
+    private final VerdictCache cache;
+
     /**
      * Для работы с каждым элементом массива, нужно использовать цикл for-each
      * Хочется заметить, что тут мы ничего не знаем, какие конкретно нам объекты переданы, знаем только то,
      * что в них реализован интерфейс TextAnalyzer
+     *
+     * Фильтры сразу компилируются в один сканер (см. FusedScanner), который читает каждый символ
+     * текста один раз и кормит им все фильтры одновременно.
      */
     public TextFilterManager(TextAnalyzer[] filters) {
+        this.filterSet = new AtomicReference<>(new FilterSet(filters, 0));
+        this.metrics = null;
+        this.adaptiveOrder = false;
+        this.cache = null;
+    }
+
+    private TextFilterManager(TextFilterManager base,
+                              FilterMetrics metrics,
+                              boolean adaptiveOrder,
+                              VerdictCache cache) {
+        this.filterSet = base.filterSet;
+        this.metrics = metrics;
+        this.adaptiveOrder = adaptiveOrder;
+        this.cache = cache;
+    }
+
+    /**
+     * Менеджер с теми же фильтрами, который пишет метрики по частям проверки (см. FilterMetrics):
+     * проверка длины, общий проход по остальным встроенным фильтрам и каждый свой фильтр запускаются
+     * и замеряются по отдельности. Встроенные фильтры внутри общего прохода остаются слитыми,
+     * так что метрики описывают тот же проход, что работает без них.
+     * Потоковая проверка (analyzeStream, newSession) метрики не пишет.
+     *
+     * @param metrics null - выключить метрики
+     */
+    public TextFilterManager withMetrics(FilterMetrics metrics) {
+        return new TextFilterManager(this, metrics, adaptiveOrder, cache);
+    }
+
+    /**
+     * Менеджер с теми же фильтрами, который сам учится, в каком порядке выгоднее запускать части проверки:
+     * проверку длины, общий проход по остальным встроенным фильтрам и каждую свою реализацию TextAnalyzer
+     * (см. AdaptiveOrder). Вердикт всегда такой же, как при проверке в порядке приоритета:
+     * часть не запускается, если она не может дать тип важнее уже найденного.
+     *
+     * Имеет смысл, когда среди фильтров есть свои реализации TextAnalyzer, которые не попадают
+     * в общий проход по тексту. После перезагрузки фильтров порядок подбирается заново.
+     * Метрики пишутся так же, как в withMetrics.
+     */
+    public TextFilterManager withAdaptiveOrder() {
+        return new TextFilterManager(this, metrics, true, cache);
+    }
+
+    /**
+     * Менеджер с теми же фильтрами, который сначала ищет вердикт в кеше и проверяет текст фильтрами
+     * только при промахе. Полезно, когда одни и те же тексты приходят много раз (флуд ботов).
+     * Кеш нельзя делить с менеджерами, у которых другие фильтры. Вердикты, посчитанные до перезагрузки
+     * фильтров, кеш после нее не отдает.
+     *
+     * @param cache null - выключить кеш
+     */
+    public TextFilterManager withCache(VerdictCache cache) {
+        return new TextFilterManager(this, metrics, adaptiveOrder, cache);
+    }
+
+    /**
+     * Атомарно заменяет фильтры этого менеджера и всех, что получены из него через with-методы.
+     * Новый набор компилируется в вызывающем потоке. Проверки, которые идут в это время, не блокируются
+     * и дорабатывают на старом наборе, следующие проверки видят уже новый.
+     * Перезагрузки выполняются по очереди.
+     */
+    public void reload(TextAnalyzer[] filters) {
+        synchronized (filterSet) {
+            filterSet.set(new FilterSet(filters, filterSet.get().generation + 1));
+        }
+    }
+
+    /**
+     * То же, что reload, но набор компилируется в executor (автоматы для больших словарей строятся долго).
+     * Future завершается, когда новый набор опубликован.
+     */
+    public CompletableFuture<Void> reloadAsync(TextAnalyzer[] filters, Executor executor) {
+        TextAnalyzer[] copy = Arrays.copyOf(filters, filters.length);
+        return CompletableFuture.runAsync(() -> reload(copy), executor);
+    }
+
+    /**
+     * Заменяет словарь спама: встроенные фильтры SPAM (созданные через TextAnalyzer.createSpamAnalyzer)
+     * заменяются одним фильтром на новом словаре, остальные фильтры остаются как были.
+     * Свои реализации TextAnalyzer с типом SPAM не трогаются.
+     */
+    public void reloadSpam(String[] spam, SpamMode mode) {
+        synchronized (filterSet) {
+            FilterSet current = filterSet.get();
+            filterSet.set(new FilterSet(current.withSpam(spam, mode), current.generation + 1));
+        }
+    }
 
+    public CompletableFuture<Void> reloadSpamAsync(String[] spam, SpamMode mode, Executor executor) {
+        String[] copy = spam.clone();
+        return CompletableFuture.runAsync(() -> reloadSpam(copy, mode), executor);
     }
 
     /**
      * Если переменная текст никуда не ссылается, то это означает, что не один фильтр не сработал
      */
     public FilterType analyze(String text) {
-        return null;
+        return analyze(filterSet.get(), text);
+    }
+
+    private FilterType analyze(FilterSet set, String text) {
+        if (text == null) {
+            return FilterType.GOOD;
+        }
+        if (cache != null) {
+            return cache.getOrAnalyze(text, set.generation, t -> analyzeUncached(set, t));
+        }
+        return analyzeUncached(set, text);
+    }
+
+    private FilterType analyzeUncached(FilterSet set, String text) {
+        if (adaptiveOrder || metrics != null) {
+            return analyzeUnits(set, text);
+        }
+        return set.scanner.analyze(text);
+    }
+
+    /**
+     * Проверка по частям (см. FusedScanner): в порядке AdaptiveOrder, если он включен, иначе в порядке
+     * номеров частей. Часть не запускается, если она не может дать тип важнее уже найденного.
+     */
+    private FilterType analyzeUnits(FilterSet set, String text) {
+        FusedScanner scanner = set.scanner;
+        AdaptiveOrder order = adaptiveOrder ? set.adaptiveOrder : null;
+        FilterType best = FilterType.GOOD;
+        for (int unit : order == null ? scanner.unitOrder : order.order()) {
+            if (scanner.unitTop(unit).compareTo(best) >= 0) {
+                continue;
+            }
+            long start = System.nanoTime();
+            FilterType verdict = scanner.checkUnit(unit, text, best);
+            long elapsed = System.nanoTime() - start;
+            boolean hit = verdict != best;
+            if (order != null) {
+                order.record(unit, hit, elapsed);
+            }
+            if (metrics != null) {
+                if (unit == scanner.contentUnit) {
+                    metrics.recordFusedPass(hit, elapsed);
+                } else {
+                    metrics.record(scanner.unitTop(unit), hit, elapsed);
+                }
+            }
+            if (hit) {
+                best = verdict;
+                if (best == FilterType.SPAM) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Потоковая проверка: текст читается кусками, и чтение останавливается, как только вердикт известен.
+     * Поток не закрывается.
+     */
+    public FilterType analyzeStream(Reader reader) throws IOException {
+        AnalysisSession session = newSession();
+        char[] buffer = new char[READ_CHUNK];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            if (session.feed(buffer, 0, read)) {
+                break;
+            }
+        }
+        return session.finish();
+    }
+
+    /**
+     * Сессия для проверки одного текста, который приходит кусками (например, CharBuffer из сети).
+     */
+    public AnalysisSession newSession() {
+        return new AnalysisSession(filterSet.get().scanner, -1);
+    }
+
+    /**
+     * Пакетная проверка: тексты делятся на куски и проверяются параллельно в общем ForkJoinPool.
+     * Результат такой же, как если бы вызвать analyze для каждого текста по очереди.
+     * Весь пакет проверяется одним набором фильтров, даже если во время проверки была перезагрузка.
+     */
+    public BatchAnalysis analyzeAll(List<String> texts) {
+        return analyzeAll(texts, ForkJoinPool.commonPool());
+    }
+
+    public BatchAnalysis analyzeAll(List<String> texts, ForkJoinPool pool) {
+        if (!(texts instanceof RandomAccess)) {
+            texts = new ArrayList<>(texts);
+        }
+        FilterType[] verdicts = new FilterType[texts.size()];
+        if (verdicts.length == 0) {
+            return new BatchAnalysis(verdicts, new long[FilterType.values().length]);
+        }
+        int threshold = Math.max(MIN_BATCH_CHUNK, verdicts.length / (pool.getParallelism() * CHUNKS_PER_WORKER));
+        long[] counts = pool.invoke(new AnalyzeTask(filterSet.get(), texts, verdicts, 0, verdicts.length, threshold));
+        return new BatchAnalysis(verdicts, counts);
+    }
+
+    /**
+     * Вердикты идут в порядке следования элементов стрима.
+     */
+    public BatchAnalysis analyzeAll(Stream<String> texts) {
+        return analyzeAll(texts.collect(Collectors.toList()));
+    }
+
+    /**
+     * Проверяет тексты с from по to. Каждый лист считает вердикты в свой собственный массив counts,
+     * а вердикты пишет в свою часть общего массива, так что потоки ничего не делят до слияния результатов.
+     */
+    private class AnalyzeTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final FilterSet set;
+        private final List<String> texts;
+        private final FilterType[] verdicts;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        private AnalyzeTask(FilterSet set, List<String> texts, FilterType[] verdicts, int from, int to,
+                            int threshold) {
+            this.set = set;
+            this.texts = texts;
+            this.verdicts = verdicts;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= threshold) {
+                long[] counts = new long[FilterType.values().length];
+                for (int i = from; i < to; i++) {
+                    FilterType verdict = analyze(set, texts.get(i));
+                    verdicts[i] = verdict;
+                    counts[verdict.ordinal()]++;
+                }
+                return counts;
+            }
+            int middle = (from + to) >>> 1;
+            AnalyzeTask left = new AnalyzeTask(set, texts, verdicts, from, middle, threshold);
+            left.fork();
+            long[] counts = new AnalyzeTask(set, texts, verdicts, middle, to, threshold).compute();
+            long[] leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += leftCounts[i];
+            }
+            return counts;
+        }
     }
 }
@@ -0,0 +1,178 @@
+package ru.mail.polis.homework.analyzer;
+
+/**
+ * Словарь целых слов (токенов) для больших словарей спама.
+ *
+ * Проверка токена в два шага: сначала фильтр Блума (BITS_PER_TOKEN бит на слово, ~1% ложных срабатываний),
+ * и только если он сказал "может быть" - точная проверка по хеш-таблице с открытой адресацией.
+ * Слова лежат одним массивом char[] (pool, границы в offsets), таблица хранит номера слов в int[] -
+ * никаких объектов на каждое слово, поэтому память на словарь в разы меньше, чем у бора.
+ * Время проверки зависит только от длины токена, но не от размера словаря.
+ *
+ * Хеш токена считается по символам (FNV-1a, 64 бита), так что вызывающий код может считать его
+ * на лету, пока читает токен: см. hashStep и hashFinish.
+ *
+ * Словарь неизменяемый и потокобезопасный.
+ */
+final class TokenDictionary {
+
+    static final long HASH_SEED = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int BITS_PER_TOKEN = 10;
+    private static final int BLOOM_HASHES = 7;
+
+    private final long[] bloom;
+    private final int bloomMask;
+    private final char[] pool;
+    private final int[] offsets;
+    /**
+     * Номер слова + 1, 0 - пустая ячейка
+     */
+    private final int[] table;
+    private final int[] tableHashes;
+    private final int tableMask;
+    private final int maxTokenLength;
+
+    /**
+     * @param tokens слова словаря, каждое - непустой токен (см. isTokenChar)
+     */
+    TokenDictionary(String[] tokens) {
+        int totalLength = 0;
+        int maxLength = 0;
+        for (String token : tokens) {
+            totalLength += token.length();
+            maxLength = Math.max(maxLength, token.length());
+        }
+        maxTokenLength = maxLength;
+        pool = new char[totalLength];
+        offsets = new int[tokens.length + 1];
+
+        int bloomBits = tableSize((long) tokens.length * BITS_PER_TOKEN, Long.SIZE);
+        bloom = new long[bloomBits / Long.SIZE];
+        bloomMask = bloomBits - 1;
+
+        int tableSize = tableSize(2L * tokens.length, 2);
+        table = new int[tableSize];
+        tableHashes = new int[tableSize];
+        tableMask = tableSize - 1;
+
+        int count = 0;
+        int offset = 0;
+        for (String token : tokens) {
+            long hash = hash(token);
+            if (contains(token, 0, token.length(), hash)) {
+                continue;
+            }
+            token.getChars(0, token.length(), pool, offset);
+            offsets[count] = offset;
+            offset += token.length();
+            offsets[count + 1] = offset;
+            addToBloom(hash);
+            int slot = (int) hash & tableMask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & tableMask;
+            }
+            table[slot] = count + 1;
+            tableHashes[slot] = (int) hash;
+            count++;
+        }
+    }
+
+    static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    static long hashStep(long hash, char c) {
+        return (hash ^ c) * FNV_PRIME;
+    }
+
+    /**
+     * Перемешивание битов (финализатор MurmurHash3), чтобы младшие биты годились для индексов
+     */
+    static long hashFinish(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    static long hash(CharSequence token) {
+        long hash = HASH_SEED;
+        for (int i = 0; i < token.length(); i++) {
+            hash = hashStep(hash, token.charAt(i));
+        }
+        return hashFinish(hash);
+    }
+
+    int getMaxTokenLength() {
+        return maxTokenLength;
+    }
+
+    /**
+     * @param hash hashFinish от хеша токена chars[offset, offset + length)
+     */
+    boolean contains(CharSequence chars, int offset, int length, long hash) {
+        if (length == 0 || length > maxTokenLength || !mightContain(hash)) {
+            return false;
+        }
+        int shortHash = (int) hash;
+        for (int slot = shortHash & tableMask; table[slot] != 0; slot = (slot + 1) & tableMask) {
+            if (tableHashes[slot] == shortHash && equalsToken(table[slot] - 1, chars, offset, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & bloomMask;
+            if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addToBloom(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & bloomMask;
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private boolean equalsToken(int token, CharSequence chars, int offset, int length) {
+        int start = offsets[token];
+        if (offsets[token + 1] - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (pool[start + i] != chars.charAt(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Степень двойки не меньше required и не меньше minimum
+     */
+    private static int tableSize(long required, int minimum) {
+        long size = minimum;
+        while (size < required) {
+            size <<= 1;
+        }
+        if (size > 1 << 30) {
+            throw new IllegalArgumentException("Dictionary is too big");
+        }
+        return (int) size;
+    }
+}
@@ -0,0 +1,99 @@
+package ru.mail.polis.homework.analyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SPAM фильтр в режиме SpamMode.TOKEN: текст режется на токены за один проход,
+ * каждый токен проверяется по TokenDictionary.
+ *
+ * Слова словаря, которые сами не являются одним токеном (например, "код из смс"), ищутся
+ * как обычные подстроки через автомат Ахо-Корасик, чтобы они не терялись молча. Как и в SpamAnalyzer,
+ * автомат строится только при первом прямом вызове analyze: в TextFilterManager фразы уходят в общий автомат.
+ */
+final class TokenSpamAnalyzer implements TextAnalyzer {
+
+    private final TokenDictionary dictionary;
+    /**
+     * Слова, которые не являются токенами
+     */
+    private final String[] phrases;
+    /**
+     * null, пока фильтр ни разу не вызывали напрямую
+     */
+    private volatile AhoCorasickAutomaton phraseAutomaton;
+
+    TokenSpamAnalyzer(String[] spam) {
+        List<String> tokens = new ArrayList<>();
+        List<String> otherWords = new ArrayList<>();
+        for (String word : spam) {
+            if (word == null || word.isEmpty()) {
+                continue;
+            }
+            if (isToken(word)) {
+                tokens.add(word);
+            } else {
+                otherWords.add(word);
+            }
+        }
+        this.dictionary = new TokenDictionary(tokens.toArray(new String[0]));
+        this.phrases = otherWords.toArray(new String[0]);
+    }
+
+    TokenDictionary getDictionary() {
+        return dictionary;
+    }
+
+    String[] getPhrases() {
+        return phrases;
+    }
+
+    @Override
+    public FilterType getType() {
+        return FilterType.SPAM;
+    }
+
+    @Override
+    public boolean analyze(String text) {
+        int start = -1;
+        long hash = TokenDictionary.HASH_SEED;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i < text.length() && TokenDictionary.isTokenChar(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+                hash = TokenDictionary.hashStep(hash, text.charAt(i));
+            } else if (start >= 0) {
+                if (dictionary.contains(text, start, i - start, TokenDictionary.hashFinish(hash))) {
+                    return true;
+                }
+                start = -1;
+                hash = TokenDictionary.HASH_SEED;
+            }
+        }
+        return phraseAutomaton().matches(text);
+    }
+
+    private AhoCorasickAutomaton phraseAutomaton() {
+        AhoCorasickAutomaton compiled = phraseAutomaton;
+        if (compiled == null) {
+            synchronized (this) {
+                compiled = phraseAutomaton;
+                if (compiled == null) {
+                    compiled = new AhoCorasickAutomaton(phrases);
+                    phraseAutomaton = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    private static boolean isToken(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (!TokenDictionary.isTokenChar(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
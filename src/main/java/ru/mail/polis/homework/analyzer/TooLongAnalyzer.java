@@ -0,0 +1,27 @@
+package ru.mail.polis.homework.analyzer;
+
+/**
+ * Срабатывает на тексты длиннее maxLength символов.
+ */
+final class TooLongAnalyzer implements TextAnalyzer {
+
+    private final long maxLength;
+
+    TooLongAnalyzer(long maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    long getMaxLength() {
+        return maxLength;
+    }
+
+    @Override
+    public FilterType getType() {
+        return FilterType.TOO_LONG;
+    }
+
+    @Override
+    public boolean analyze(String text) {
+        return text.length() > maxLength;
+    }
+}
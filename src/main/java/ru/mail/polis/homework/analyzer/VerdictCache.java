@@ -0,0 +1,234 @@
+package ru.mail.polis.homework.analyzer;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Ограниченный кеш вердиктов для TextFilterManager.withCache: повторный текст не проверяется фильтрами заново.
+ *
+ * Ключ - первые 128 бит SHA-256 от текста, сам текст в кеше не хранится. Случайное совпадение ключей
+ * практически невозможно, а подобрать текст под чужой ключ так же сложно, как найти коллизию SHA-256.
+ *
+ * Кеш разбит на сегменты, каждый сегмент - LRU (LinkedHashMap в порядке доступа) под своей блокировкой,
+ * так что потоки, попавшие в разные сегменты, друг другу не мешают. Емкость делится между сегментами поровну,
+ * но на сегмент приходится не меньше MIN_SEGMENT_CAPACITY вердиктов: маленький кеш - это один настоящий LRU,
+ * а не набор крошечных, которые вытесняют горячие тексты из-за неудачного распределения ключей.
+ *
+ * Вердикт зависит от набора фильтров, поэтому один кеш нельзя отдавать менеджерам с разными фильтрами.
+ * Вместе с вердиктом хранится номер набора фильтров, на котором он посчитан: после перезагрузки фильтров
+ * старый вердикт считается промахом и перезаписывается.
+ */
+public final class VerdictCache {
+
+    private static final int SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+    private static final int HASH_CHUNK = 4096;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[HASH_CHUNK]);
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity сколько вердиктов хранить, не меньше 1
+     */
+    public VerdictCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        // степень двойки, чтобы сегмент выбирался маской по хешу
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(SEGMENTS, capacity / MIN_SEGMENT_CAPACITY)));
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0));
+        }
+    }
+
+    FilterType getOrAnalyze(String text, long generation, Function<String, FilterType> analyzer) {
+        TextKey key = TextKey.of(text);
+        Segment segment = segments[key.hashCode() & (segments.length - 1)];
+        Verdict cached;
+        synchronized (segment) {
+            cached = segment.get(key);
+        }
+        if (cached != null && cached.generation == generation) {
+            hits.increment();
+            return cached.type;
+        }
+        misses.increment();
+        FilterType verdict = analyzer.apply(text);
+        synchronized (segment) {
+            // пока фильтр работал, другой поток мог положить вердикт более нового набора
+            Verdict current = segment.get(key);
+            if (current == null || current.generation <= generation) {
+                segment.put(key, new Verdict(verdict, generation));
+            }
+        }
+        return verdict;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Доля попаданий, 0 если обращений еще не было
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Удаляет все вердикты, статистику не трогает
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "VerdictCache{size=" + size()
+                + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount()
+                + '}';
+    }
+
+    private static final class Verdict {
+        private final FilterType type;
+        private final long generation;
+
+        private Verdict(FilterType type, long generation) {
+            this.type = type;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * LRU одного сегмента, все методы вызываются под блокировкой самого сегмента
+     */
+    private final class Segment {
+        private final int capacity;
+        private final Map<TextKey, Verdict> verdicts = new LinkedHashMap<>(16, 0.75f, true);
+
+        private Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private Verdict get(TextKey key) {
+            return verdicts.get(key);
+        }
+
+        private void put(TextKey key, Verdict verdict) {
+            verdicts.put(key, verdict);
+            if (verdicts.size() > capacity) {
+                Iterator<TextKey> eldest = verdicts.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        private int size() {
+            return verdicts.size();
+        }
+
+        private void clear() {
+            verdicts.clear();
+        }
+    }
+
+    private static final class TextKey {
+        private final long high;
+        private final long low;
+
+        private TextKey(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        /**
+         * SHA-256 по UTF-16 символам текста (по два байта на символ), берем первые 16 байт
+         */
+        private static TextKey of(String text) {
+            MessageDigest digest = DIGEST.get();
+            byte[] buffer = BUFFER.get();
+            int filled = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                buffer[filled++] = (byte) (c >>> 8);
+                buffer[filled++] = (byte) c;
+                if (filled == buffer.length) {
+                    digest.update(buffer, 0, filled);
+                    filled = 0;
+                }
+            }
+            digest.update(buffer, 0, filled);
+            byte[] hash = digest.digest();
+            return new TextKey(toLong(hash, 0), toLong(hash, 8));
+        }
+
+        private static long toLong(byte[] bytes, int offset) {
+            long result = 0;
+            for (int i = offset; i < offset + Long.BYTES; i++) {
+                result = result << 8 | (bytes[i] & 0xFF);
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            TextKey that = (TextKey) o;
+            return high == that.high && low == that.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (low ^ low >>> 32);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ru.mail.polis.homework.collections;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчики популярности для ConcurrentPopularMap, которые можно увеличивать из многих потоков сразу.
+ *
+ * У каждого элемента свой LongAdder, так что потоки, трогающие разные элементы, друг другу не мешают,
+ * а трогающие один и тот же - пишут в разные ячейки сумматора. Самый популярный элемент хранится
+ * отдельно в AtomicReference и только растет: поток, который увеличил счетчик, читает сумму и, если она
+ * больше счетчика текущего лидера, ставит свой элемент через CAS. В частом случае, когда лидер не меняется,
+ * никакой записи в общую ссылку нет.
+ *
+ * Согласованность лидера. Пока идут обновления, лидер может отставать на те увеличения, которые
+ * еще не закончились, и при равных счетчиках лидером остается тот, кто первым поднял общий максимум.
+ * Когда обновления закончились, лидер - один из элементов с максимальным счетчиком: поток, чье чтение
+ * суммы элемента случилось последним, видит все его увеличения и поднимает лидера как минимум до этого
+ * значения. При последовательном использовании лидер совпадает с FrequencyList.
+ *
+ * @param <T> - тип элемента
+ */
+final class ConcurrentFrequencyCounter<T> implements PopularityCounter<T> {
+
+    private final ConcurrentHashMap<T, LongAdder> counters = new ConcurrentHashMap<>();
+    private final AtomicReference<Leader<T>> leader = new AtomicReference<>(null);
+
+    @Override
+    public void increment(T item) {
+        LongAdder counter = counters.get(item);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(item, ignored -> new LongAdder());
+        }
+        counter.increment();
+        long count = counter.sum();
+
+        Leader<T> current = leader.get();
+        while (current == null || count > current.count) {
+            if (leader.compareAndSet(current, new Leader<>(item, count))) {
+                return;
+            }
+            current = leader.get();
+        }
+    }
+
+    @Override
+    public int count(Object item) {
+        LongAdder counter = counters.get(item);
+        return counter == null ? 0 : saturate(counter.sum());
+    }
+
+    @Override
+    public T top() {
+        Leader<T> current = leader.get();
+        return current == null ? null : current.item;
+    }
+
+    /**
+     * Итератор по снимку счетчиков от самых непопулярных к самым популярным.
+     * Снимок берется при вызове без блокировок, поэтому увеличения, идущие параллельно, могут в него
+     * попасть частично; порядок элементов с равными счетчиками не определен.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        List<Map.Entry<T, Long>> snapshot = new ArrayList<>(counters.size());
+        counters.forEach((item, counter) ->
+                snapshot.add(new AbstractMap.SimpleImmutableEntry<>(item, counter.sum())));
+        snapshot.sort(Map.Entry.comparingByValue());
+        return snapshot.stream().map(Map.Entry::getKey).iterator();
+    }
+
+    /**
+     * Берется по такому же снимку, как iterator, за O(n log k)
+     */
+    @Override
+    public List<T> top(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k = " + k);
+        }
+        PriorityQueue<Map.Entry<T, Long>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+        counters.forEach((item, counter) -> {
+            heap.add(new AbstractMap.SimpleImmutableEntry<>(item, counter.sum()));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        });
+        List<T> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll().getKey());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private static int saturate(long count) {
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    private static final class Leader<T> {
+        private final T item;
+        private final long count;
+
+        private Leader(T item, long count) {
+            this.item = item;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package ru.mail.polis.homework.collections;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * PopularMap, которую можно использовать из многих потоков без внешней синхронизации.
+ *
+ * Сами данные лежат в ConcurrentMap, популярность считается в ConcurrentFrequencyCounter: у каждого
+ * ключа и значения свой LongAdder, а самый популярный ключ и значение обновляются через CAS, так что
+ * get, put и containsKey не берут общей блокировки.
+ *
+ * Методы считают популярность так же, как PopularMap. Отличия - в согласованности:
+ * getPopularKey и getPopularValue под параллельной нагрузкой могут отставать на незавершенные
+ * операции, но после их завершения возвращают элемент с максимальной популярностью (подробнее
+ * в ConcurrentFrequencyCounter), а popularIterator идет по снимку счетчиков, взятому при вызове.
+ * null не допускается ни в качестве ключа, ни в качестве значения.
+ *
+ * @param <K> - тип ключа
+ * @param <V> - тип значения
+ */
+public class ConcurrentPopularMap<K, V> implements Map<K, V> {
+
+    private final ConcurrentMap<K, V> map;
+    private final PopularityCounter<K> keyPopularity = new ConcurrentFrequencyCounter<>();
+    private final PopularityCounter<V> valuePopularity = new ConcurrentFrequencyCounter<>();
+
+    public ConcurrentPopularMap() {
+        this.map = new ConcurrentHashMap<>();
+    }
+
+    public ConcurrentPopularMap(ConcurrentMap<K, V> map) {
+        this.map = map;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        touchKey(key);
+        return map.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        touchValue(value);
+        return map.containsValue(value);
+    }
+
+    @Override
+    public V get(Object key) {
+        touchKey(key);
+        V value = map.get(key);
+        touchValue(value);
+        return value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        touchKey(key);
+        touchValue(value);
+        V old = map.put(key, value);
+        touchValue(old);
+        return old;
+    }
+
+    @Override
+    public V remove(Object key) {
+        touchKey(key);
+        V old = map.remove(key);
+        touchValue(old);
+        return old;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        map.putAll(m);
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return map.keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return map.values();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return map.entrySet();
+    }
+
+    /**
+     * Возвращает самый популярный, на данный момент, ключ
+     */
+    public K getPopularKey() {
+        return keyPopularity.top();
+    }
+
+    /**
+     * Возвращает количество использование ключа
+     */
+    public int getKeyPopularity(K key) {
+        return keyPopularity.count(key);
+    }
+
+    /**
+     * Возвращает самое популярное, на данный момент, значение
+     */
+    public V getPopularValue() {
+        return valuePopularity.top();
+    }
+
+    /**
+     * Возвращает количество использований значения, считается так же, как в PopularMap
+     */
+    public int getValuePopularity(V value) {
+        return valuePopularity.count(value);
+    }
+
+    /**
+     * Итератор по значениям от самых НЕ популярных к самым популярным, по снимку на момент вызова
+     */
+    public Iterator<V> popularIterator() {
+        return valuePopularity.iterator();
+    }
+
+    /**
+     * Не больше k самых популярных ключей, от самого популярного. Считается по снимку счетчиков
+     */
+    public List<K> topKeys(int k) {
+        return keyPopularity.top(k);
+    }
+
+    /**
+     * Не больше k самых популярных значений, от самого популярного. Считается по снимку счетчиков
+     */
+    public List<V> topValues(int k) {
+        return valuePopularity.top(k);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void touchKey(Object key) {
+        if (key != null) {
+            keyPopularity.increment((K) key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void touchValue(Object value) {
+        if (value != null) {
+            valuePopularity.increment((V) value);
+        }
+    }
+}
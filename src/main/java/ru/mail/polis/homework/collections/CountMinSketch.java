@@ -0,0 +1,85 @@
+package ru.mail.polis.homework.collections;
+
+/**
+ * Count-Min sketch: приближенные счетчики для любого числа разных элементов в памяти фиксированного размера.
+ *
+ * Таблица из depth строк по width счетчиков; элемент увеличивает по одному счетчику в каждой строке,
+ * а оценка - минимум по этим счетчикам. Оценка никогда не меньше настоящего счетчика и, с вероятностью
+ * не меньше 1 - delta, больше него не более чем на epsilon * N, где N - сумма всех увеличений.
+ * Для этого хватает width = ceil(e / epsilon) и depth = ceil(ln(1 / delta)).
+ *
+ * Увеличение консервативное: растут только те счетчики строки, которые равны текущей оценке.
+ * Гарантии те же, а завышение на практике заметно меньше.
+ */
+final class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    /**
+     * Строки таблицы подряд: счетчик строки row для столбца column лежит в row * width + column
+     */
+    private final int[] table;
+
+    CountMinSketch(double epsilon, double delta) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("epsilon and delta must be in (0, 1)");
+        }
+        double columns = Math.ceil(Math.E / epsilon);
+        this.depth = Math.max(1, (int) Math.ceil(Math.log(1 / delta)));
+        if (columns * depth > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("epsilon " + epsilon + " is too small");
+        }
+        this.width = (int) columns;
+        this.table = new int[width * depth];
+    }
+
+    /**
+     * Увеличивает счетчик элемента на 1 и возвращает новую оценку
+     */
+    int add(Object item) {
+        int hash = item.hashCode();
+        int first = spread(hash);
+        int second = spread(hash * 0x85EBCA6B) | 1;
+        int estimate = estimate(first, second);
+        if (estimate == Integer.MAX_VALUE) {
+            return estimate;
+        }
+        int updated = estimate + 1;
+        for (int row = 0; row < depth; row++) {
+            int index = index(row, first, second);
+            if (table[index] < updated) {
+                table[index] = updated;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Оценка счетчика элемента сверху
+     */
+    int estimate(Object item) {
+        int hash = item.hashCode();
+        return estimate(spread(hash), spread(hash * 0x85EBCA6B) | 1);
+    }
+
+    private int estimate(int first, int second) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, table[index(row, first, second)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Столбец в строке row: хеши строк получаются из двух независимых как first + row * second
+     */
+    private int index(int row, int first, int second) {
+        int hash = first + row * second;
+        return row * width + (hash & Integer.MAX_VALUE) % width;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
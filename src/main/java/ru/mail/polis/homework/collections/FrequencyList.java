@@ -0,0 +1,353 @@
+package ru.mail.polis.homework.collections;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Счетчики популярности в виде списка частот, как в LFU-кеше.
+ *
+ * Элементы с одинаковым счетчиком лежат в одной корзине, корзины связаны в двусвязный список
+ * по возрастанию счетчика, и пустых корзин в нем нет. Увеличение счетчика переносит элемент
+ * в соседнюю корзину (создавая ее при необходимости), поэтому и увеличение, и самый популярный
+ * элемент, и его счетчик получаются за O(1) без пересчета.
+ *
+ * Внутри корзины элементы идут в порядке, в котором они набрали этот счетчик, так что из равных
+ * по популярности популярнее считается тот, кто дошел до нее раньше. Поэтому итератор от непопулярных
+ * к популярным идет по корзине с конца, а top(k) - с начала, и оба начинают за O(1)
+ * и тратят O(1) на элемент.
+ *
+ * @param <T> - тип элемента
+ */
+final class FrequencyList<T> implements PopularityCounter<T> {
+
+    private final Map<T, Node<T>> nodes = new HashMap<>();
+    /**
+     * Корзина с самым маленьким счетчиком, null если элементов нет
+     */
+    private Bucket<T> lowest;
+    /**
+     * Корзина с самым большим счетчиком, null если элементов нет
+     */
+    private Bucket<T> highest;
+    /**
+     * Опустевшие корзины, связанные через next. Новая корзина сначала берется отсюда,
+     * так что увеличение счетчика в установившемся режиме ничего не создает.
+     */
+    private Bucket<T> free;
+    private int modCount;
+
+    @Override
+    public void increment(T item) {
+        Node<T> node = nodes.get(item);
+        if (node == null) {
+            node = new Node<>(item);
+            nodes.put(item, node);
+            Bucket<T> first = lowest;
+            if (first == null || first.count != 1) {
+                first = insertAfter(null, 1);
+            }
+            first.append(node);
+        } else {
+            moveUp(node);
+        }
+        modCount++;
+    }
+
+    /**
+     * Уменьшает счетчик элемента на 1 за O(1), элемент со счетчиком 0 убирается.
+     * Среди элементов с новым счетчиком он считается дошедшим до него последним.
+     */
+    void decrement(Object item) {
+        Node<T> node = nodes.get(item);
+        if (node == null) {
+            return;
+        }
+        Bucket<T> current = node.bucket;
+        if (current.count == 1) {
+            remove(item);
+            return;
+        }
+        Bucket<T> target = current.prev;
+        if (target == null || target.count != current.count - 1) {
+            target = insertAfter(current.prev, current.count - 1);
+        }
+        unlink(node);
+        target.append(node);
+        modCount++;
+    }
+
+    @Override
+    public int count(Object item) {
+        Node<T> node = nodes.get(item);
+        return node == null ? 0 : node.bucket.count;
+    }
+
+    @Override
+    public T top() {
+        return highest == null ? null : highest.head.item;
+    }
+
+    @Override
+    public List<T> top(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k = " + k);
+        }
+        List<T> result = new ArrayList<>(Math.min(k, nodes.size()));
+        for (Bucket<T> bucket = highest; bucket != null && result.size() < k; bucket = bucket.prev) {
+            for (Node<T> node = bucket.head; node != null && result.size() < k; node = node.next) {
+                result.add(node.item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Добавляет новый элемент сразу со счетчиком count. Корзина ищется от самой непопулярной,
+     * так что это O(1), когда count не больше чем на 1 превышает самый маленький счетчик
+     * (так добавляет элементы LfuPolicy).
+     *
+     * @throws IllegalArgumentException если элемент уже есть: второй узел сломал бы список
+     */
+    void add(T item, int count) {
+        if (nodes.containsKey(item)) {
+            throw new IllegalArgumentException("already present: " + item);
+        }
+        Node<T> node = new Node<>(item);
+        nodes.put(item, node);
+        Bucket<T> prev = null;
+        Bucket<T> bucket = lowest;
+        while (bucket != null && bucket.count < count) {
+            prev = bucket;
+            bucket = bucket.next;
+        }
+        if (bucket == null || bucket.count != count) {
+            bucket = insertAfter(prev, count);
+        }
+        bucket.append(node);
+        modCount++;
+    }
+
+    /**
+     * Убирает элемент вместе с его счетчиком
+     *
+     * @return был ли такой элемент
+     */
+    boolean remove(Object item) {
+        Node<T> node = nodes.remove(item);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Убирает элемент с самым маленьким счетчиком (из равных - тот, что набрал его раньше всех)
+     *
+     * @return убранный элемент, null если элементов нет
+     */
+    T removeLowest() {
+        if (lowest == null) {
+            return null;
+        }
+        Node<T> node = lowest.head;
+        nodes.remove(node.item);
+        unlink(node);
+        modCount++;
+        return node.item;
+    }
+
+    /**
+     * Самый маленький счетчик, 0 если элементов нет
+     */
+    int lowestCount() {
+        return lowest == null ? 0 : lowest.count;
+    }
+
+    void clear() {
+        nodes.clear();
+        lowest = null;
+        highest = null;
+        free = null;
+        modCount++;
+    }
+
+    boolean contains(Object item) {
+        return nodes.containsKey(item);
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Вытесняет элемент с самым маленьким счетчиком (из равных - тот, что набрал его раньше всех)
+     * и ставит на его место item со счетчиком на 1 больше. Это шаг алгоритма Space-Saving.
+     *
+     * @return счетчик вытесненного элемента
+     */
+    int replaceLowest(T item) {
+        Node<T> node = lowest.head;
+        nodes.remove(node.item);
+        node.item = item;
+        nodes.put(item, node);
+        int evicted = node.bucket.count;
+        moveUp(node);
+        modCount++;
+        return evicted;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final int expectedModCount = modCount;
+            private Bucket<T> bucket = lowest;
+            private Node<T> node = lowest == null ? null : lowest.tail;
+
+            @Override
+            public boolean hasNext() {
+                return node != null;
+            }
+
+            @Override
+            public T next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (node == null) {
+                    throw new NoSuchElementException();
+                }
+                T item = node.item;
+                node = node.prev;
+                if (node == null) {
+                    bucket = bucket.next;
+                    node = bucket == null ? null : bucket.tail;
+                }
+                return item;
+            }
+        };
+    }
+
+    /**
+     * Переносит элемент в корзину со счетчиком на 1 больше
+     */
+    private void moveUp(Node<T> node) {
+        Bucket<T> current = node.bucket;
+        Bucket<T> target = current.next;
+        if (target == null || target.count != current.count + 1) {
+            target = insertAfter(current, current.count + 1);
+        }
+        unlink(node);
+        target.append(node);
+    }
+
+    /**
+     * Вынимает элемент из его корзины и убирает корзину, если она опустела
+     */
+    private void unlink(Node<T> node) {
+        Bucket<T> bucket = node.bucket;
+        bucket.unlink(node);
+        if (bucket.isEmpty()) {
+            removeBucket(bucket);
+        }
+    }
+
+    /**
+     * Вставляет новую пустую корзину после prev (или в начало, если prev == null)
+     */
+    private Bucket<T> insertAfter(Bucket<T> prev, int count) {
+        Bucket<T> bucket = free;
+        if (bucket == null) {
+            bucket = new Bucket<>();
+        } else {
+            free = bucket.next;
+        }
+        bucket.count = count;
+        Bucket<T> next = prev == null ? lowest : prev.next;
+        bucket.prev = prev;
+        bucket.next = next;
+        if (prev == null) {
+            lowest = bucket;
+        } else {
+            prev.next = bucket;
+        }
+        if (next == null) {
+            highest = bucket;
+        } else {
+            next.prev = bucket;
+        }
+        return bucket;
+    }
+
+    private void removeBucket(Bucket<T> bucket) {
+        if (bucket.prev == null) {
+            lowest = bucket.next;
+        } else {
+            bucket.prev.next = bucket.next;
+        }
+        if (bucket.next == null) {
+            highest = bucket.prev;
+        } else {
+            bucket.next.prev = bucket.prev;
+        }
+        bucket.prev = null;
+        bucket.next = free;
+        free = bucket;
+    }
+
+    private static final class Node<T> {
+        private T item;
+        private Bucket<T> bucket;
+        private Node<T> prev;
+        private Node<T> next;
+
+        private Node(T item) {
+            this.item = item;
+        }
+    }
+
+    private static final class Bucket<T> {
+        private int count;
+        private Bucket<T> prev;
+        private Bucket<T> next;
+        private Node<T> head;
+        private Node<T> tail;
+
+        private void append(Node<T> node) {
+            node.bucket = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        private void unlink(Node<T> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        private boolean isEmpty() {
+            return head == null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.mail.polis.homework.collections;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Приближенные счетчики популярности в памяти фиксированного размера, для PopularMap.approximate.
+ *
+ * Самые популярные элементы ищет алгоритм Space-Saving: он держит не больше capacity = ceil(1 / epsilon)
+ * счетчиков в FrequencyList, и новый элемент вытесняет тот, у которого счетчик меньше всех, забирая
+ * его счетчик плюс один. Любой элемент, который встречался чаще epsilon * N раз, обязательно
+ * среди отслеживаемых, а их счетчики завышены не больше чем на epsilon * N.
+ *
+ * Популярность отдельного элемента оценивает CountMinSketch. Для отслеживаемых элементов берется
+ * меньшая из двух оценок: обе не меньше настоящего счетчика, так что меньшая точнее.
+ *
+ * @param <T> - тип элемента
+ */
+final class HeavyHitters<T> implements PopularityCounter<T> {
+
+    private final int capacity;
+    private final FrequencyList<T> summary = new FrequencyList<>();
+    private final CountMinSketch sketch;
+
+    HeavyHitters(double epsilon, double delta) {
+        this.sketch = new CountMinSketch(epsilon, delta);
+        this.capacity = (int) Math.ceil(1 / epsilon);
+    }
+
+    @Override
+    public void increment(T item) {
+        sketch.add(item);
+        if (summary.size() < capacity || summary.contains(item)) {
+            summary.increment(item);
+        } else {
+            summary.replaceLowest(item);
+        }
+    }
+
+    @Override
+    public int count(Object item) {
+        int estimate = sketch.estimate(item);
+        int tracked = summary.count(item);
+        return tracked == 0 ? estimate : Math.min(tracked, estimate);
+    }
+
+    @Override
+    public T top() {
+        return summary.top();
+    }
+
+    @Override
+    public List<T> top(int k) {
+        return summary.top(k);
+    }
+
+    /**
+     * Итератор только по отслеживаемым элементам, в порядке их счетчиков Space-Saving
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return summary.iterator();
+    }
+}
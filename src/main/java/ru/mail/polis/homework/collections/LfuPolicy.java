@@ -0,0 +1,71 @@
+package ru.mail.polis.homework.collections;
+
+/**
+ * Политика вытеснения для PopularMap.bounded: какой ключ убрать, когда в мапе больше capacity записей.
+ *
+ * Ключи, которые сейчас лежат в мапе, хранятся в отдельном FrequencyList со счетчиком обращений
+ * с момента попадания в мапу. Вытесняется ключ с самым маленьким счетчиком, из равных - тот, что
+ * набрал его раньше всех, так что и обращение, и вытеснение стоят O(1).
+ *
+ * Со старением (LFU-DA) у политики есть возраст - счетчик последнего вытесненного ключа, и новый ключ
+ * начинает с возраста плюс один, а не с единицы. Так старые популярные ключи, к которым больше
+ * не обращаются, со временем догоняются новыми и тоже вытесняются. Все счетчики в списке не меньше
+ * возраста, поэтому новый ключ встает рядом с самой непопулярной корзиной, тоже за O(1).
+ *
+ * @param <K> - тип ключа
+ */
+final class LfuPolicy<K> {
+
+    private final int capacity;
+    private final boolean aging;
+    private final FrequencyList<K> residents = new FrequencyList<>();
+    private int age;
+
+    LfuPolicy(int capacity, boolean aging) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity = " + capacity);
+        }
+        this.capacity = capacity;
+        this.aging = aging;
+    }
+
+    /**
+     * К ключу, который лежит в мапе, обратились
+     */
+    void touch(Object key) {
+        @SuppressWarnings("unchecked")
+        K resident = (K) key;
+        if (residents.contains(resident)) {
+            residents.increment(resident);
+        }
+    }
+
+    /**
+     * В мапу пришел новый ключ. Если место кончилось, сначала выбирается ключ на вытеснение.
+     *
+     * @return ключ, который надо убрать из мапы, либо null
+     */
+    K admit(K key) {
+        K victim = null;
+        if (residents.size() >= capacity) {
+            int lowest = residents.lowestCount();
+            victim = residents.removeLowest();
+            if (aging) {
+                age = Math.max(age, lowest);
+            }
+        }
+        residents.add(key, age + 1);
+        return victim;
+    }
+
+    /**
+     * Ключ убрали из мапы
+     */
+    void remove(Object key) {
+        residents.remove(key);
+    }
+
+    void clear() {
+        residents.clear();
+    }
+}
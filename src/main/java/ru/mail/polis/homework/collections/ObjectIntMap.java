@@ -0,0 +1,102 @@
+package ru.mail.polis.homework.collections;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Мапа из объекта в int без упаковки: ключи и значения лежат в двух параллельных массивах,
+ * коллизии разрешаются линейным пробированием. В отличие от HashMap<T, Integer>, увеличение
+ * счетчика существующего ключа ничего не создает, а clear оставляет массивы для следующего
+ * наполнения, так что в установившемся режиме мапа не выделяет память совсем.
+ *
+ * Пустая ячейка - null в keys, поэтому null в качестве ключа не допускается.
+ *
+ * @param <T> - тип ключа
+ */
+final class ObjectIntMap<T> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private Object[] keys;
+    private int[] values;
+    private int size;
+    /**
+     * Длина массивов минус 1, длина всегда степень двойки
+     */
+    private int mask;
+
+    ObjectIntMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Прибавляет delta к значению ключа (отсутствующий ключ считается равным 0)
+     *
+     * @return новое значение
+     */
+    int addTo(T key, int delta) {
+        int index = slot(key);
+        while (true) {
+            Object current = keys[index];
+            if (current == null) {
+                keys[index] = key;
+                values[index] = delta;
+                if (++size > (mask + 1) >> 1) {
+                    allocate((mask + 1) << 1);
+                }
+                return delta;
+            }
+            if (current.equals(key)) {
+                return values[index] += delta;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Убирает все ключи, не отдавая массивы
+     */
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, null);
+            Arrays.fill(values, 0);
+            size = 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(ObjIntConsumer<? super T> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept((T) keys[i], values[i]);
+            }
+        }
+    }
+
+    private int slot(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new Object[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        if (oldKeys == null) {
+            return;
+        }
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object key = oldKeys[i];
+            if (key != null) {
+                int index = slot(key);
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
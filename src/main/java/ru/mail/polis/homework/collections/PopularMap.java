@@ -1,9 +1,13 @@
 package ru.mail.polis.homework.collections;
 
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -34,80 +38,234 @@ import java.util.Set;
 public class PopularMap<K, V> implements Map<K, V> {
 
     private final Map<K, V> map;
+    private final PopularityCounter<K> keyPopularity;
+    private final PopularityCounter<V> valuePopularity;
+    /**
+     * Политика вытеснения для ограниченной мапы, null если размер не ограничен
+     */
+    private final LfuPolicy<K> eviction;
+    /**
+     * Счетчики ограниченной мапы - те же списки, что keyPopularity и valuePopularity. Из них убирается
+     * все, чего в мапе больше нет, так что они не растут больше capacity. null, если размер не ограничен
+     */
+    private final FrequencyList<K> residentKeys;
+    private final FrequencyList<V> residentValues;
+    /**
+     * Сколько записей ограниченной мапы ссылается на каждое значение, null если размер не ограничен
+     */
+    private final Map<V, Integer> valueRefs;
 
     public PopularMap() {
-        this.map = new HashMap<>();
+        this(new HashMap<>());
     }
 
     public PopularMap(Map<K, V> map) {
+        this(map, new FrequencyList<>(), new FrequencyList<>());
+    }
+
+    /**
+     * Мапа, в которой популярность считается только за последнее окно времени window, а не за все время,
+     * так что ключ, к которому давно не обращались, перестает быть самым популярным.
+     *
+     * Окно делится на intervals интервалов, и популярность интервала, вышедшего из окна, вычитается целиком:
+     * чем больше интервалов, тем ровнее окно скользит, но тем больше ячеек на счетчики. Память не растет
+     * со временем, а обращения к популярности стоят в среднем O(1).
+     *
+     * @param window - длина окна, не меньше intervals миллисекунд
+     * @param intervals - на сколько интервалов делится окно, больше 0
+     */
+    public PopularMap(Duration window, int intervals) {
+        this(new HashMap<>(), window, intervals, Clock.systemUTC());
+    }
+
+    /**
+     * То же, что PopularMap(window, intervals), но данные хранятся в map, а время берется из clock
+     */
+    public PopularMap(Map<K, V> map, Duration window, int intervals, Clock clock) {
+        this(map, new WindowedCounter<>(window, intervals, clock), new WindowedCounter<>(window, intervals, clock));
+    }
+
+    private PopularMap(Map<K, V> map, PopularityCounter<K> keyPopularity, PopularityCounter<V> valuePopularity) {
         this.map = map;
+        this.keyPopularity = keyPopularity;
+        this.valuePopularity = valuePopularity;
+        this.eviction = null;
+        this.residentKeys = null;
+        this.residentValues = null;
+        this.valueRefs = null;
+    }
+
+    private PopularMap(LfuPolicy<K> eviction, FrequencyList<K> keyPopularity, FrequencyList<V> valuePopularity) {
+        this.map = new HashMap<>();
+        this.keyPopularity = keyPopularity;
+        this.valuePopularity = valuePopularity;
+        this.eviction = eviction;
+        this.residentKeys = keyPopularity;
+        this.residentValues = valuePopularity;
+        this.valueRefs = new HashMap<>();
+    }
+
+    /**
+     * Мапа, которая считает популярность приближенно, зато в памяти фиксированного размера, сколько бы
+     * разных ключей и значений через нее ни прошло.
+     *
+     * Самый популярный ключ и значение ищутся среди ceil(1 / epsilon) отслеживаемых (Space-Saving): любой,
+     * кто использовался чаще epsilon * N раз, где N - общее число использований, гарантированно среди них.
+     * getKeyPopularity и getValuePopularity возвращают оценку Count-Min: она не меньше настоящей популярности
+     * и с вероятностью не меньше 1 - delta больше нее не более чем на epsilon * N.
+     * popularIterator, topKeys и topValues идут только по отслеживаемым ключам и значениям.
+     *
+     * @param epsilon - допустимая ошибка как доля от общего числа использований, от 0 до 1
+     * @param delta - допустимая вероятность выйти за эту ошибку, от 0 до 1
+     */
+    public static <K, V> PopularMap<K, V> approximate(double epsilon, double delta) {
+        return approximate(new HashMap<>(), epsilon, delta);
+    }
+
+    /**
+     * То же, что approximate(epsilon, delta), но сами данные хранятся в map
+     */
+    public static <K, V> PopularMap<K, V> approximate(Map<K, V> map, double epsilon, double delta) {
+        return new PopularMap<>(map, new HeavyHitters<>(epsilon, delta), new HeavyHitters<>(epsilon, delta));
+    }
+
+    /**
+     * Мапа не больше чем на capacity записей, которую можно использовать как LFU-кеш: когда приходит
+     * новый ключ, а места нет, из нее убирается ключ, к которому реже всего обращались с тех пор, как он
+     * в нее попал (из равных - тот, что дошел до этого числа обращений раньше). Вытеснение стоит O(1).
+     *
+     * Популярность здесь считается только для того, что лежит в мапе: счетчик ключа живет, пока ключ
+     * в мапе, а счетчик значения - пока на него ссылается хотя бы одна запись. Вытесненный или удаленный
+     * ключ теряет популярность вместе со значением, на которое больше никто не ссылается, а обращения
+     * к отсутствующим ключам и значениям не запоминаются. Так память на популярность ограничена capacity,
+     * сколько бы разных ключей через мапу ни прошло, а getPopularKey и topKeys выбирают из живых записей.
+     *
+     * keySet, values и entrySet такой мапы только для чтения, чтобы записи не пропадали мимо вытеснения.
+     *
+     * @param capacity - сколько записей может быть в мапе, больше 0
+     * @param aging - включить старение (LFU-DA): новые ключи начинают не с нуля, а со счетчика последнего
+     *              вытесненного, так что ключи, которые были популярны давно, со временем тоже вытесняются
+     */
+    public static <K, V> PopularMap<K, V> bounded(int capacity, boolean aging) {
+        return new PopularMap<>(new LfuPolicy<>(capacity, aging), new FrequencyList<>(), new FrequencyList<>());
+    }
+
+    /**
+     * То же, что bounded(capacity, false)
+     */
+    public static <K, V> PopularMap<K, V> bounded(int capacity) {
+        return bounded(capacity, false);
     }
 
     @Override
     public int size() {
-        return 0;
+        return map.size();
     }
 
     @Override
     public boolean isEmpty() {
-        return false;
+        return map.isEmpty();
     }
 
     @Override
     public boolean containsKey(Object key) {
-        return false;
+        touchKey(key);
+        boolean contains = map.containsKey(key);
+        if (contains && eviction != null) {
+            eviction.touch(key);
+        } else {
+            forgetKey(key);
+        }
+        return contains;
     }
 
     @Override
     public boolean containsValue(Object value) {
-        return false;
+        touchValue(value);
+        boolean contains = map.containsValue(value);
+        forgetValue(value);
+        return contains;
     }
 
     @Override
     public V get(Object key) {
-        return null;
+        touchKey(key);
+        V value = map.get(key);
+        touchValue(value);
+        if (eviction != null && (value != null || map.containsKey(key))) {
+            eviction.touch(key);
+        } else {
+            forgetKey(key);
+        }
+        return value;
     }
 
     @Override
     public V put(K key, V value) {
-        return null;
+        touchKey(key);
+        touchValue(value);
+        V old = store(key, value);
+        touchValue(old);
+        forgetValue(old);
+        return old;
     }
 
     @Override
     public V remove(Object key) {
-        return null;
+        touchKey(key);
+        boolean present = eviction != null && map.containsKey(key);
+        V old = map.remove(key);
+        touchValue(old);
+        if (present) {
+            eviction.remove(key);
+            release(old);
+        }
+        forgetKey(key);
+        return old;
     }
 
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
-        throw new UnsupportedOperationException("putAll");
+        if (eviction == null) {
+            map.putAll(m);
+            return;
+        }
+        for (Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            store(entry.getKey(), entry.getValue());
+        }
     }
 
     @Override
     public void clear() {
-
+        map.clear();
+        if (eviction != null) {
+            eviction.clear();
+            residentKeys.clear();
+            residentValues.clear();
+            valueRefs.clear();
+        }
     }
 
     @Override
     public Set<K> keySet() {
-        return null;
+        return eviction == null ? map.keySet() : Collections.unmodifiableSet(map.keySet());
     }
 
     @Override
     public Collection<V> values() {
-        return null;
+        return eviction == null ? map.values() : Collections.unmodifiableCollection(map.values());
     }
 
     @Override
     public Set<Entry<K, V>> entrySet() {
-        return null;
+        return eviction == null ? map.entrySet() : Collections.unmodifiableSet(map.entrySet());
     }
 
     /**
      * Возвращает самый популярный, на данный момент, ключ
      */
     public K getPopularKey() {
-        return null;
+        return keyPopularity.top();
     }
 
 
@@ -115,14 +273,14 @@ public class PopularMap<K, V> implements Map<K, V> {
      * Возвращает количество использование ключа
      */
     public int getKeyPopularity(K key) {
-        return 0;
+        return keyPopularity.count(key);
     }
 
     /**
      * Возвращает самое популярное, на данный момент, значение. Надо учесть что значени может быть более одного
      */
     public V getPopularValue() {
-        return null;
+        return valuePopularity.top();
     }
 
     /**
@@ -130,7 +288,7 @@ public class PopularMap<K, V> implements Map<K, V> {
      * старое значение и новое - одно и тоже), remove (считаем по старому значению).
      */
     public int getValuePopularity(V value) {
-        return 0;
+        return valuePopularity.count(value);
     }
 
     /**
@@ -138,6 +296,88 @@ public class PopularMap<K, V> implements Map<K, V> {
      * 2 тугрика
      */
     public Iterator<V> popularIterator() {
-        return null;
+        return valuePopularity.iterator();
+    }
+
+    /**
+     * Не больше k самых популярных ключей, от самого популярного. Стоит O(k), без сортировки всех ключей
+     */
+    public List<K> topKeys(int k) {
+        return keyPopularity.top(k);
+    }
+
+    /**
+     * Не больше k самых популярных значений, от самого популярного. Стоит O(k), без сортировки всех значений
+     */
+    public List<V> topValues(int k) {
+        return valuePopularity.top(k);
+    }
+
+    /**
+     * Кладет запись в мапу, а в ограниченной мапе еще и обновляет политику вытеснения.
+     * Новый ли это ключ, решает containsKey, а не старое значение: значение может быть null.
+     */
+    private V store(K key, V value) {
+        boolean present = eviction != null && map.containsKey(key);
+        V old = map.put(key, value);
+        if (eviction != null) {
+            if (value != null) {
+                valueRefs.merge(value, 1, Integer::sum);
+            }
+            if (present) {
+                eviction.touch(key);
+                release(old);
+            } else {
+                K victim = eviction.admit(key);
+                if (victim != null) {
+                    residentKeys.remove(victim);
+                    release(map.remove(victim));
+                }
+            }
+        }
+        return old;
+    }
+
+    /**
+     * Запись ограниченной мапы больше не ссылается на value: если не ссылается и никакая другая,
+     * счетчик значения убирается
+     */
+    private void release(V value) {
+        if (value != null) {
+            valueRefs.computeIfPresent(value, (v, refs) -> refs == 1 ? null : refs - 1);
+            forgetValue(value);
+        }
+    }
+
+    /**
+     * В ограниченной мапе убирает счетчик ключа, которого в мапе нет
+     */
+    private void forgetKey(Object key) {
+        if (eviction != null && !map.containsKey(key)) {
+            residentKeys.remove(key);
+        }
+    }
+
+    /**
+     * В ограниченной мапе убирает счетчик значения, на которое не ссылается ни одна запись
+     */
+    private void forgetValue(Object value) {
+        if (eviction != null && value != null && !valueRefs.containsKey(value)) {
+            residentValues.remove(value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void touchKey(Object key) {
+        if (key != null) {
+            keyPopularity.increment((K) key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void touchValue(Object value) {
+        if (value != null) {
+            valuePopularity.increment((V) value);
+        }
     }
 }
@@ -0,0 +1,32 @@
+package ru.mail.polis.homework.collections;
+
+import java.util.List;
+
+/**
+ * Счетчики популярности, на которых PopularMap считает популярность ключей и значений.
+ * Итератор идет по отслеживаемым элементам от самых непопулярных к самым популярным.
+ *
+ * @param <T> - тип элемента
+ */
+interface PopularityCounter<T> extends Iterable<T> {
+
+    /**
+     * Увеличивает счетчик элемента на 1
+     */
+    void increment(T item);
+
+    /**
+     * Счетчик элемента, 0 если элемент ни разу не встречался
+     */
+    int count(Object item);
+
+    /**
+     * Самый популярный элемент, null если элементов нет
+     */
+    T top();
+
+    /**
+     * Не больше k самых популярных элементов, от самого популярного
+     */
+    List<T> top(int k);
+}
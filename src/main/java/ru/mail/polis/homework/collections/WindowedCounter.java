@@ -0,0 +1,118 @@
+package ru.mail.polis.homework.collections;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Счетчики популярности за скользящее окно, для PopularMap с окном.
+ *
+ * Окно разбито на intervals интервалов одинаковой длины. Увеличения каждого интервала копятся
+ * в своей ячейке кольцевого буфера (ObjectIntMap, чтобы не упаковывать счетчики), а общий счетчик
+ * за окно лежит в FrequencyList, так что лидер и порядок по популярности берутся из него так же,
+ * как без окна. Когда интервал выходит из окна, все его увеличения вычитаются из FrequencyList
+ * по одному, а ячейка освобождается для нового интервала. Каждое увеличение так вычитается ровно
+ * один раз и за O(1), поэтому и увеличение, и устаревание в среднем стоят O(1), а ячеек всегда
+ * intervals, сколько бы времени ни прошло.
+ *
+ * Устаревание ленивое: окно сдвигается при любом обращении к счетчикам. В окно попадает текущий,
+ * еще не законченный интервал и intervals - 1 предыдущих, то есть его длина гуляет между
+ * window - window / intervals и window.
+ *
+ * @param <T> - тип элемента
+ */
+final class WindowedCounter<T> implements PopularityCounter<T> {
+
+    private final FrequencyList<T> counts = new FrequencyList<>();
+    private final Clock clock;
+    private final long intervalMillis;
+    /**
+     * slots[i % slots.length] - сколько раз каждый элемент увеличивали в интервале i
+     */
+    private final ObjectIntMap<T>[] slots;
+    /**
+     * Ссылка на expire, созданная один раз: this::expire прямо в advance создавался бы на каждый вызов
+     */
+    private final ObjIntConsumer<T> expireAction = this::expire;
+    /**
+     * Номер последнего интервала, до которого окно уже сдвинуто
+     */
+    private long current;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    WindowedCounter(Duration window, int intervals, Clock clock) {
+        if (intervals <= 0) {
+            throw new IllegalArgumentException("intervals = " + intervals);
+        }
+        if (window.isNegative() || window.toMillis() < intervals) {
+            throw new IllegalArgumentException("window " + window + " is shorter than " + intervals + " ms");
+        }
+        this.clock = clock;
+        this.intervalMillis = window.toMillis() / intervals;
+        this.slots = new ObjectIntMap[intervals];
+        for (int i = 0; i < intervals; i++) {
+            slots[i] = new ObjectIntMap<>();
+        }
+        this.current = clock.millis() / intervalMillis;
+    }
+
+    @Override
+    public void increment(T item) {
+        advance();
+        slots[slot(current)].addTo(item, 1);
+        counts.increment(item);
+    }
+
+    @Override
+    public int count(Object item) {
+        advance();
+        return counts.count(item);
+    }
+
+    @Override
+    public T top() {
+        advance();
+        return counts.top();
+    }
+
+    @Override
+    public List<T> top(int k) {
+        advance();
+        return counts.top(k);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        advance();
+        return counts.iterator();
+    }
+
+    /**
+     * Сдвигает окно до текущего интервала, вычитая интервалы, которые из него вышли
+     */
+    private void advance() {
+        long now = clock.millis() / intervalMillis;
+        if (now <= current) {
+            return;
+        }
+        long expired = Math.min(now - current, slots.length);
+        for (long i = 1; i <= expired; i++) {
+            ObjectIntMap<T> slot = slots[slot(current + i)];
+            slot.forEach(expireAction);
+            slot.clear();
+        }
+        current = now;
+    }
+
+    private void expire(T item, int increments) {
+        for (int n = increments; n > 0; n--) {
+            counts.decrement(item);
+        }
+    }
+
+    private int slot(long interval) {
+        return (int) (interval % slots.length);
+    }
+}
@@ -0,0 +1,38 @@
+package ru.mail.polis.homework.collections.structure;
+
+/**
+ * Общая политика роста массивов для CustomArrayList и его примитивных вариантов:
+ * первая выделенная емкость - DEFAULT_CAPACITY, дальше массив растет в полтора раза
+ * (или сразу до нужного размера, если этого не хватает).
+ */
+final class ArrayGrowth {
+
+    static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * Некоторые JVM не дают выделить массив длиной ровно Integer.MAX_VALUE
+     */
+    static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private ArrayGrowth() {
+    }
+
+    /**
+     * Новая емкость массива длины current, в который должно поместиться required элементов
+     *
+     * @throws OutOfMemoryError если required больше MAX_ARRAY_LENGTH или переполнился int
+     */
+    static int newCapacity(int current, int required) {
+        if (required < 0 || required > MAX_ARRAY_LENGTH) {
+            throw new OutOfMemoryError("Required array length " + Integer.toUnsignedString(required) + " is too large");
+        }
+        if (current == 0) {
+            return Math.max(DEFAULT_CAPACITY, required);
+        }
+        int grown = current + (current >> 1);
+        if (grown < 0 || grown > MAX_ARRAY_LENGTH) {
+            grown = MAX_ARRAY_LENGTH;
+        }
+        return Math.max(grown, required);
+    }
+}
@@ -1,129 +1,451 @@
 package ru.mail.polis.homework.collections.structure;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 
 /**
  * Необходимо реализовать свой ArrayList (динамический массив).
  * При изменении размера массива помните про метод System.arraycopy()
  *
  * Задание оценивается в 10 тугриков
+ *
+ * Массив растет по политике ArrayGrowth, общей с IntArrayList, LongArrayList и DoubleArrayList.
  */
 public class CustomArrayList<E> implements List<E> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[] elements;
+    private int size;
+    /**
+     * Счетчик структурных изменений, по нему итераторы замечают, что список поменяли в обход них
+     */
+    private int modCount;
+
+    public CustomArrayList() {
+        this.elements = EMPTY;
+    }
+
+    public CustomArrayList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initialCapacity = " + initialCapacity);
+        }
+        this.elements = initialCapacity == 0 ? EMPTY : new Object[initialCapacity];
+    }
+
     @Override
     public int size() {
-        return 0;
+        return size;
     }
 
     @Override
     public boolean isEmpty() {
-        return false;
+        return size == 0;
     }
 
     @Override
     public boolean contains(Object o) {
-        return false;
+        return indexOf(o) >= 0;
     }
 
     @Override
     public Iterator<E> iterator() {
-        return null;
+        return new ListItr(0);
     }
 
     @Override
     public Object[] toArray() {
-        return new Object[0];
+        return Arrays.copyOf(elements, size);
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T[] toArray(T[] a) {
-        return null;
+        if (a.length < size) {
+            return (T[]) Arrays.copyOf(elements, size, a.getClass());
+        }
+        System.arraycopy(elements, 0, a, 0, size);
+        if (a.length > size) {
+            a[size] = null;
+        }
+        return a;
     }
 
     @Override
     public boolean add(E e) {
-        return false;
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        elements[size++] = e;
+        modCount++;
+        return true;
     }
 
     @Override
     public boolean remove(Object o) {
-        return false;
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        fastRemove(index);
+        return true;
     }
 
     @Override
     public boolean containsAll(Collection<?> c) {
-        return false;
+        for (Object o : c) {
+            if (!contains(o)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public boolean addAll(Collection<? extends E> c) {
-        return false;
+        return addAll(size, c);
     }
 
     @Override
     public boolean addAll(int index, Collection<? extends E> c) {
-        return false;
+        checkPositionIndex(index);
+        Object[] added = c.toArray();
+        if (added.length == 0) {
+            return false;
+        }
+        if (size + added.length > elements.length) {
+            grow(size + added.length);
+        }
+        System.arraycopy(elements, index, elements, index + added.length, size - index);
+        System.arraycopy(added, 0, elements, index, added.length);
+        size += added.length;
+        modCount++;
+        return true;
     }
 
     @Override
     public boolean removeAll(Collection<?> c) {
-        return false;
+        return removeIf(c, false);
     }
 
     @Override
     public boolean retainAll(Collection<?> c) {
-        return false;
+        return removeIf(c, true);
     }
 
     @Override
     public void clear() {
-
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+        modCount++;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public E get(int index) {
-        return null;
+        checkElementIndex(index);
+        return (E) elements[index];
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public E set(int index, E element) {
-        return null;
+        checkElementIndex(index);
+        E old = (E) elements[index];
+        elements[index] = element;
+        return old;
     }
 
     @Override
     public void add(int index, E element) {
-
+        checkPositionIndex(index);
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = element;
+        size++;
+        modCount++;
     }
 
     @Override
     public E remove(int index) {
-        return null;
+        E old = get(index);
+        fastRemove(index);
+        return old;
     }
 
     @Override
     public int indexOf(Object o) {
-        return 0;
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(o, elements[i])) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     @Override
     public int lastIndexOf(Object o) {
-        return 0;
+        for (int i = size - 1; i >= 0; i--) {
+            if (Objects.equals(o, elements[i])) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     @Override
     public ListIterator<E> listIterator() {
-        return null;
+        return new ListItr(0);
     }
 
     @Override
     public ListIterator<E> listIterator(int index) {
-        return null;
+        checkPositionIndex(index);
+        return new ListItr(index);
     }
 
     @Override
     public List<E> subList(int fromIndex, int toIndex) {
-        return null;
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex = " + fromIndex + ", toIndex = " + toIndex
+                    + ", size = " + size);
+        }
+        return new SubList(fromIndex, toIndex);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof List)) {
+            return false;
+        }
+        Iterator<?> other = ((List<?>) o).iterator();
+        for (int i = 0; i < size; i++) {
+            if (!other.hasNext() || !Objects.equals(elements[i], other.next())) {
+                return false;
+            }
+        }
+        return !other.hasNext();
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Objects.hashCode(elements[i]);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private void grow(int required) {
+        elements = Arrays.copyOf(elements, ArrayGrowth.newCapacity(elements.length, required));
+    }
+
+    private void fastRemove(int index) {
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(elements, index + 1, elements, index, moved);
+        }
+        elements[--size] = null;
+        modCount++;
+    }
+
+    /**
+     * Убирает элементы, которые есть (или, если retain, которых нет) в c, одним проходом со сжатием
+     */
+    private boolean removeIf(Collection<?> c, boolean retain) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (c.contains(elements[i]) == retain) {
+                elements[kept++] = elements[i];
+            }
+        }
+        if (kept == size) {
+            return false;
+        }
+        Arrays.fill(elements, kept, size, null);
+        size = kept;
+        modCount++;
+        return true;
+    }
+
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index = " + index + ", size = " + size);
+        }
+    }
+
+    private void checkPositionIndex(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("index = " + index + ", size = " + size);
+        }
+    }
+
+    private class ListItr implements ListIterator<E> {
+        private int cursor;
+        /**
+         * Индекс элемента, который последним вернули next или previous, -1 если его нельзя менять
+         */
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        ListItr(int index) {
+            this.cursor = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (cursor >= size) {
+                throw new NoSuchElementException();
+            }
+            last = cursor++;
+            return get(last);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @Override
+        public E previous() {
+            checkForComodification();
+            if (cursor <= 0) {
+                throw new NoSuchElementException();
+            }
+            last = --cursor;
+            return get(last);
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            CustomArrayList.this.remove(last);
+            cursor = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(E e) {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            CustomArrayList.this.set(last, e);
+        }
+
+        @Override
+        public void add(E e) {
+            checkForComodification();
+            CustomArrayList.this.add(cursor++, e);
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Представление отрезка [offset, offset + size) списка; изменения идут прямо в CustomArrayList
+     */
+    private class SubList extends AbstractList<E> {
+        private final int offset;
+        private int size;
+        private int expectedModCount = CustomArrayList.this.modCount;
+
+        SubList(int fromIndex, int toIndex) {
+            this.offset = fromIndex;
+            this.size = toIndex - fromIndex;
+        }
+
+        @Override
+        public E get(int index) {
+            checkIndex(index, size);
+            return CustomArrayList.this.get(offset + index);
+        }
+
+        @Override
+        public E set(int index, E element) {
+            checkIndex(index, size);
+            return CustomArrayList.this.set(offset + index, element);
+        }
+
+        @Override
+        public int size() {
+            checkForComodification();
+            return size;
+        }
+
+        @Override
+        public void add(int index, E element) {
+            checkIndex(index, size + 1);
+            CustomArrayList.this.add(offset + index, element);
+            expectedModCount = CustomArrayList.this.modCount;
+            size++;
+            modCount++;
+        }
+
+        @Override
+        public E remove(int index) {
+            checkIndex(index, size);
+            E old = CustomArrayList.this.remove(offset + index);
+            expectedModCount = CustomArrayList.this.modCount;
+            size--;
+            modCount++;
+            return old;
+        }
+
+        private void checkIndex(int index, int bound) {
+            checkForComodification();
+            if (index < 0 || index >= bound) {
+                throw new IndexOutOfBoundsException("index = " + index + ", size = " + size);
+            }
+        }
+
+        private void checkForComodification() {
+            if (CustomArrayList.this.modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
     }
 }
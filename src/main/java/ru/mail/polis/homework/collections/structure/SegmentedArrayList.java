@@ -0,0 +1,206 @@
+package ru.mail.polis.homework.collections.structure;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Динамический массив для очень больших списков: элементы лежат не в одном массиве, а в кусках
+ * фиксированного размера, на которые ссылается массив-каталог.
+ *
+ * CustomArrayList при росте копирует все элементы в новый массив в полтора раза больше,
+ * и на сотнях миллионов элементов это и долгое копирование, и огромный массив, который G1
+ * выделяет как humongous-объект. Здесь добавление в конец только заводит новый кусок, когда
+ * старые заполнены, и ничего не копирует; при росте копируется лишь каталог, в котором
+ * по ссылке на кусок. Память растет ступенями по одному куску.
+ *
+ * Размер куска - степень двойки, поэтому get(i) - это chunks[i >>> shift][i & mask], тоже O(1).
+ * Вставка и удаление в середине сдвигают хвост кусок за куском через System.arraycopy, как
+ * и в CustomArrayList. Когда список уменьшается, пустые куски в конце отдаются, кроме одного
+ * запасного, чтобы список на границе куска не выделял и не отдавал его на каждом шаге.
+ */
+public class SegmentedArrayList<E> extends AbstractList<E> implements RandomAccess {
+
+    /**
+     * 16384 ссылки - 64 или 128 КБ на кусок, заметно меньше порога humongous-объектов в G1
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+    private static final Object[][] EMPTY = new Object[0][];
+
+    private final int shift;
+    private final int mask;
+    private Object[][] chunks;
+    private int chunkCount;
+    private int size;
+
+    public SegmentedArrayList() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize - сколько элементов в одном куске, степень двойки
+     */
+    public SegmentedArrayList(int chunkSize) {
+        if (chunkSize <= 0 || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("chunkSize must be a power of two: " + chunkSize);
+        }
+        this.shift = Integer.numberOfTrailingZeros(chunkSize);
+        this.mask = chunkSize - 1;
+        this.chunks = EMPTY;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkElementIndex(index);
+        return (E) chunks[index >>> shift][index & mask];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element) {
+        checkElementIndex(index);
+        Object[] chunk = chunks[index >>> shift];
+        E old = (E) chunk[index & mask];
+        chunk[index & mask] = element;
+        return old;
+    }
+
+    @Override
+    public boolean add(E e) {
+        ensureCapacity(size + 1);
+        chunks[size >>> shift][size & mask] = e;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkPositionIndex(index);
+        ensureCapacity(size + 1);
+        shiftRight(index);
+        chunks[index >>> shift][index & mask] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        Object[] added = c.toArray();
+        if (added.length == 0) {
+            return false;
+        }
+        ensureCapacity(size + added.length);
+        int copied = 0;
+        while (copied < added.length) {
+            int position = size + copied;
+            int length = Math.min(added.length - copied, mask + 1 - (position & mask));
+            System.arraycopy(added, copied, chunks[position >>> shift], position & mask, length);
+            copied += length;
+        }
+        size += added.length;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public E remove(int index) {
+        E old = get(index);
+        shiftLeft(index);
+        size--;
+        chunks[size >>> shift][size & mask] = null;
+        releaseSpareChunks();
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        chunks = EMPTY;
+        chunkCount = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Заводит куски, чтобы в список без выделения памяти поместилось capacity элементов
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new OutOfMemoryError("Required list size is too large");
+        }
+        while ((long) chunkCount << shift < capacity) {
+            if (chunkCount == chunks.length) {
+                Object[][] grown = new Object[ArrayGrowth.newCapacity(chunks.length, chunkCount + 1)][];
+                System.arraycopy(chunks, 0, grown, 0, chunkCount);
+                chunks = grown;
+            }
+            chunks[chunkCount++] = new Object[mask + 1];
+        }
+    }
+
+    /**
+     * Сдвигает элементы [index, size) на одну позицию вправо; место под size + 1 элементов уже есть
+     */
+    private void shiftRight(int index) {
+        int first = index >>> shift;
+        int last = size >>> shift;
+        for (int c = last; c > first; c--) {
+            Object[] chunk = chunks[c];
+            int end = c == last ? size & mask : mask;
+            System.arraycopy(chunk, 0, chunk, 1, end);
+            chunk[0] = chunks[c - 1][mask];
+        }
+        Object[] chunk = chunks[first];
+        int from = index & mask;
+        int end = first == last ? size & mask : mask;
+        System.arraycopy(chunk, from, chunk, from + 1, end - from);
+    }
+
+    /**
+     * Сдвигает элементы (index, size) на одну позицию влево, затирая элемент index
+     */
+    private void shiftLeft(int index) {
+        int first = index >>> shift;
+        int lastIndex = size - 1;
+        int last = lastIndex >>> shift;
+        Object[] chunk = chunks[first];
+        int from = index & mask;
+        int end = first == last ? lastIndex & mask : mask;
+        System.arraycopy(chunk, from + 1, chunk, from, end - from);
+        for (int c = first + 1; c <= last; c++) {
+            chunks[c - 1][mask] = chunks[c][0];
+            int chunkEnd = c == last ? lastIndex & mask : mask;
+            System.arraycopy(chunks[c], 1, chunks[c], 0, chunkEnd);
+        }
+    }
+
+    /**
+     * Отдает пустые куски в конце, оставляя один запасной
+     */
+    private void releaseSpareChunks() {
+        int needed = (int) (((long) size + mask) >>> shift);
+        while (chunkCount > needed + 1) {
+            chunks[--chunkCount] = null;
+        }
+    }
+
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index = " + index + ", size = " + size);
+        }
+    }
+
+    private void checkPositionIndex(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("index = " + index + ", size = " + size);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.mail.polis.homework.processor;
+
+/**
+ * Звено посимвольного конвейера, в который TextProcessorManager сливает подряд идущие простые обработчики
+ * (схлопывание пробелов, заглавные буквы, обрезание). Каждое звено получает символы своего входа,
+ * преобразует их и передает дальше, так что текст проходится один раз и без промежуточных строк.
+ *
+ * Звено хранит состояние обработки одного текста, поэтому конвейер нельзя делить между потоками.
+ */
+abstract class CharStage {
+
+    final CharStage next;
+
+    CharStage(CharStage next) {
+        this.next = next;
+    }
+
+    /**
+     * Принимает очередной символ.
+     *
+     * @return false, если дальше по конвейеру символы больше не нужны и чтение можно остановить
+     */
+    abstract boolean put(char c);
+
+    /**
+     * Вход закончился: звено отдает то, что придержало, и передает конец дальше
+     */
+    void finish() {
+        next.finish();
+    }
+
+    /**
+     * Сбрасывает состояние перед обработкой следующего текста
+     */
+    void reset() {
+        next.reset();
+    }
+}
@@ -0,0 +1,43 @@
+package ru.mail.polis.homework.processor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Скомпилированное регулярное выражение: Pattern и, если выражение достаточно простое, ShiftAndMatcher.
+ *
+ * Одинаковые выражения компилируются один раз на всю программу: результаты лежат в общем кеше,
+ * который перестает пополняться после MAX_CACHED выражений (чтобы случайные выражения не съели память).
+ */
+final class CompiledRegex {
+
+    private static final int MAX_CACHED = 1024;
+    private static final ConcurrentMap<String, CompiledRegex> CACHE = new ConcurrentHashMap<>();
+
+    final Pattern pattern;
+    /**
+     * null, если выражение не входит в подмножество ShiftAndMatcher
+     */
+    final ShiftAndMatcher fastMatcher;
+
+    private CompiledRegex(String regex) {
+        this.pattern = Pattern.compile(regex);
+        this.fastMatcher = ShiftAndMatcher.compile(regex);
+    }
+
+    static CompiledRegex of(String regex) {
+        CompiledRegex compiled = CACHE.get(regex);
+        if (compiled != null) {
+            return compiled;
+        }
+        compiled = new CompiledRegex(regex);
+        if (CACHE.size() < MAX_CACHED) {
+            CompiledRegex previous = CACHE.putIfAbsent(regex, compiled);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return compiled;
+    }
+}
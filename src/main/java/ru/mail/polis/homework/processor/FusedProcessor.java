@@ -0,0 +1,171 @@
+package ru.mail.polis.homework.processor;
+
+import java.util.List;
+
+/**
+ * Несколько подряд идущих посимвольных обработчиков, слитых в один проход: например, схлопывание пробелов,
+ * заглавные буквы и обрезание читают текст один раз и пишут результат в один переиспользуемый буфер
+ * вместо трех промежуточных строк.
+ *
+ * Конвейер звеньев (CharStage) со своим буфером строится один раз на поток и переиспользуется.
+ * Если обработка ничего не поменяла, возвращается сама входная строка, без копирования.
+ *
+ * Если дальше по цепочке нужны только первые outputLimit символов (например, в конце стоит trimProcessor),
+ * проход останавливается, как только они получены, и остаток текста даже не читается.
+ */
+final class FusedProcessor implements StreamingProcessor {
+
+    /**
+     * Буфер потока, который вырос больше этого, после обработки не сохраняется, чтобы не держать память
+     * после одного огромного текста. Общий предел для всех переиспользуемых буферов пакета.
+     */
+    static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+    private final FusibleProcessor[] processors;
+    private final int outputLimit;
+    private final boolean lazyViews;
+    private final ThreadLocal<Pipeline> pipeline;
+
+    /**
+     * @param outputLimit сколько первых символов результата нужно, LengthBounded.UNBOUNDED - все
+     */
+    FusedProcessor(List<FusibleProcessor> processors, int outputLimit) {
+        this.processors = processors.toArray(new FusibleProcessor[0]);
+        this.outputLimit = outputLimit;
+        boolean lazy = true;
+        for (FusibleProcessor processor : this.processors) {
+            lazy &= processor.hasLazyView();
+        }
+        this.lazyViews = lazy;
+        this.pipeline = ThreadLocal.withInitial(this::newPipeline);
+    }
+
+    @Override
+    public ProcessingStage getStage() {
+        return processors[0].getStage();
+    }
+
+    @Override
+    public String process(String text) {
+        return run(text).toString();
+    }
+
+    /**
+     * Если все слитые обработчики умеют ленивые представления, они просто накладываются друг на друга,
+     * иначе текст проходится один раз, как в process, но без копирования входа в String.
+     */
+    @Override
+    public CharSequence view(CharSequence text) {
+        if (!lazyViews) {
+            return run(text);
+        }
+        CharSequence result = text;
+        for (FusibleProcessor processor : processors) {
+            result = processor.view(result);
+        }
+        return result;
+    }
+
+    /**
+     * @return сам text, если ничего не поменялось, его начало, если результат - обрезанный вход, иначе String
+     */
+    private CharSequence run(CharSequence text) {
+        Pipeline current = pipeline.get();
+        Output output = current.output;
+        current.head.reset();
+        output.start(text, outputLimit);
+        for (int i = 0; i < text.length(); i++) {
+            if (!current.head.put(text.charAt(i))) {
+                break;
+            }
+        }
+        current.head.finish();
+        CharSequence result = output.result();
+        if (output.buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            current.output.buffer = new StringBuilder();
+        }
+        return result;
+    }
+
+    /**
+     * Звенья всех слитых обработчиков, для потоковой обработки; ограничение outputLimit здесь не нужно,
+     * обрезание само сообщит, что символов больше не надо
+     */
+    @Override
+    public CharStage stage(CharStage next) {
+        CharStage head = next;
+        for (int i = processors.length - 1; i >= 0; i--) {
+            head = processors[i].stage(head);
+        }
+        return head;
+    }
+
+    private Pipeline newPipeline() {
+        Output output = new Output();
+        return new Pipeline(stage(output), output);
+    }
+
+    private static final class Pipeline {
+        private final CharStage head;
+        private final Output output;
+
+        private Pipeline(CharStage head, Output output) {
+            this.head = head;
+            this.output = output;
+        }
+    }
+
+    /**
+     * Последнее звено: пока результат совпадает с началом входной строки, символы не копируются,
+     * а только сравниваются. Копирование в буфер начинается с первого отличия.
+     */
+    private static final class Output extends CharStage {
+        private StringBuilder buffer = new StringBuilder();
+        private CharSequence input;
+        private int limit;
+        private int matched;
+        private boolean copying;
+
+        private Output() {
+            super(null);
+        }
+
+        private void start(CharSequence input, int limit) {
+            this.input = input;
+            this.limit = limit;
+            this.matched = 0;
+            this.copying = false;
+            buffer.setLength(0);
+        }
+
+        @Override
+        boolean put(char c) {
+            if (copying) {
+                buffer.append(c);
+            } else if (matched < input.length() && input.charAt(matched) == c) {
+                matched++;
+            } else {
+                copying = true;
+                buffer.append(input, 0, matched).append(c);
+            }
+            return (copying ? buffer.length() : matched) < limit;
+        }
+
+        @Override
+        void finish() {
+        }
+
+        @Override
+        void reset() {
+        }
+
+        private CharSequence result() {
+            CharSequence text = input;
+            input = null;
+            if (copying) {
+                return buffer.toString();
+            }
+            return matched == text.length() ? text : text.subSequence(0, matched);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ru.mail.polis.homework.processor;
+
+/**
+ * Обработчик, который работает посимвольно без буферизации и потому сливается с соседними такими же
+ * в один проход по тексту (см. FusedProcessor).
+ */
+interface FusibleProcessor extends StreamingProcessor, LengthBounded {
+
+    /**
+     * Возвращает ли view ленивое представление без прохода по тексту со сборкой результата
+     */
+    default boolean hasLazyView() {
+        return false;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.mail.polis.homework.processor;
+
+/**
+ * Обработчик, который знает, сколько символов входа ему нужно, чтобы правильно выдать начало результата.
+ * По этим оценкам TextProcessorManager протаскивает ограничение длины от trimProcessor к ранним стадиям.
+ */
+interface LengthBounded {
+
+    /**
+     * Граница, означающая "нужен весь вход"
+     */
+    int UNBOUNDED = Integer.MAX_VALUE;
+
+    /**
+     * @param outputLimit сколько первых символов результата нужно дальше, UNBOUNDED - все
+     * @return сколько первых символов входа достаточно, чтобы эти символы результата были такими же,
+     * как при обработке всего текста; UNBOUNDED - оценки нет
+     */
+    int inputLimit(int outputLimit);
+}
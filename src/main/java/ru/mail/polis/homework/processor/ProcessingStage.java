@@ -2,6 +2,11 @@ package ru.mail.polis.homework.processor;
 
 /**
  * Стадия обработки текста (2 балла)
+ *
+ * Порядок констант задает порядок стадий: обработчик более ранней стадии не может идти после более поздней.
  */
 public enum ProcessingStage {
+    PRE_PROCESSING,
+    PROCESSING,
+    POST_PROCESSING
 }
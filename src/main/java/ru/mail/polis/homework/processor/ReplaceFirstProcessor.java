@@ -0,0 +1,280 @@
+package ru.mail.polis.homework.processor;
+
+import java.util.regex.Matcher;
+
+final class ReplaceFirstProcessor implements StreamingProcessor, LengthBounded {
+
+    /**
+     * В потоковом режиме через Pattern: Matcher запускается не на каждый символ, а раз в столько символов
+     */
+    private static final int CHECK_STEP = 1024;
+    /**
+     * В потоковом режиме через Pattern совпадение ищется в окне такой длины: если решения нет,
+     * а окно заполнено, берется то, что найдено, или отдается начало окна
+     */
+    private static final int MAX_WINDOW = 1 << 16;
+    /**
+     * Сколько уже отданных символов держать перед окном для ретроспективных проверок ((?<=...), \b)
+     */
+    private static final int LOOK_BEHIND = 256;
+    private static final int COMPACT_THRESHOLD = 4096;
+
+    /**
+     * Буферы для сборки результата, свои у каждого потока: при пакетной обработке новая память
+     * выделяется только под сами результаты. Буферы больше FusedProcessor.MAX_RETAINED_CAPACITY
+     * после использования не сохраняются.
+     */
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(StringBuilder::new);
+    private static final ThreadLocal<StringBuffer> BUFFER = ThreadLocal.withInitial(StringBuffer::new);
+
+    private final CompiledRegex regex;
+    private final String replacement;
+    /**
+     * В замене нет ссылок на группы и экранирования, ее можно вставлять как есть
+     */
+    private final boolean literalReplacement;
+    private final ThreadLocal<Matcher> matcher;
+
+    ReplaceFirstProcessor(String regex, String replacement) {
+        this.regex = CompiledRegex.of(regex);
+        this.replacement = replacement;
+        this.literalReplacement = replacement.indexOf('$') < 0 && replacement.indexOf('\\') < 0;
+        this.matcher = ThreadLocal.withInitial(() -> this.regex.pattern.matcher(""));
+    }
+
+    @Override
+    public ProcessingStage getStage() {
+        return ProcessingStage.PROCESSING;
+    }
+
+    /**
+     * Если длина совпадения ограничена M символами, первые L символов результата зависят только
+     * от первых L + M символов входа: совпадение, которое начинается раньше L, там целиком помещается.
+     * M удваивается, потому что Pattern считает длину в кодовых точках, а не в char.
+     */
+    @Override
+    public int inputLimit(int outputLimit) {
+        if (regex.fastMatcher == null) {
+            return UNBOUNDED;
+        }
+        long limit = (long) outputLimit + 2L * regex.fastMatcher.getMaxLength();
+        return limit >= UNBOUNDED ? UNBOUNDED : (int) limit;
+    }
+
+    /**
+     * То же, что text.replaceFirst(regex, replacement), но без компиляции выражения на каждый вызов,
+     * а для простых выражений и без Matcher (см. ShiftAndMatcher).
+     */
+    @Override
+    public String process(String text) {
+        return replace(text).toString();
+    }
+
+    /**
+     * Без совпадения возвращает сам вход, без копирования
+     */
+    @Override
+    public CharSequence view(CharSequence text) {
+        return replace(text);
+    }
+
+    private CharSequence replace(CharSequence text) {
+        if (literalReplacement && regex.fastMatcher != null) {
+            long match = regex.fastMatcher.find(text);
+            if (match == ShiftAndMatcher.NOT_FOUND) {
+                return text;
+            }
+            if (match != ShiftAndMatcher.UNSUPPORTED) {
+                int start = (int) (match >>> 32);
+                int end = (int) match;
+                StringBuilder builder = BUILDER.get();
+                builder.setLength(0);
+                String result = builder.append(text, 0, start)
+                        .append(replacement)
+                        .append(text, end, text.length())
+                        .toString();
+                if (builder.capacity() > FusedProcessor.MAX_RETAINED_CAPACITY) {
+                    BUILDER.remove();
+                }
+                return result;
+            }
+        }
+        Matcher current = matcher.get().reset(text);
+        try {
+            if (!current.find()) {
+                return text;
+            }
+            StringBuffer buffer = BUFFER.get();
+            buffer.setLength(0);
+            current.appendReplacement(buffer, replacement);
+            String result = current.appendTail(buffer).toString();
+            if (buffer.capacity() > FusedProcessor.MAX_RETAINED_CAPACITY) {
+                BUFFER.remove();
+            }
+            return result;
+        } finally {
+            // не держим ссылку на обработанный текст
+            current.reset("");
+        }
+    }
+
+    @Override
+    public CharStage stage(CharStage next) {
+        return new Stage(next);
+    }
+
+    /**
+     * Потоковая замена первого вхождения. Символы, которые уже точно не войдут в первое вхождение, сразу
+     * отдаются дальше, остальные ждут в буфере. После замены звено просто пропускает символы.
+     *
+     * Для выражений ShiftAndMatcher буфер не длиннее самого длинного совпадения, и результат точно такой же,
+     * как у process. Остальные выражения ищутся через Matcher с hitEnd: пока поиск упирается в конец
+     * прочитанного, решение откладывается, но не дольше, чем на MAX_WINDOW символов. Совпадения длиннее окна
+     * в этом режиме могут быть не найдены или найдены короче.
+     */
+    private final class Stage extends CharStage {
+        private final StringBuilder pending = new StringBuilder();
+        /**
+         * pending[0, emitted) уже отданы дальше и остались только как контекст
+         */
+        private int emitted;
+        /**
+         * Номер символа pending[0] во всем тексте
+         */
+        private int pendingOffset;
+        /**
+         * Длина pending на момент последнего запуска Matcher
+         */
+        private int checked;
+        /**
+         * null - поиск через Pattern
+         */
+        private ShiftAndMatcher.Search search;
+        private boolean done;
+
+        private Stage(CharStage next) {
+            super(next);
+            start();
+        }
+
+        @Override
+        boolean put(char c) {
+            if (done) {
+                return next.put(c);
+            }
+            pending.append(c);
+            if (search != null) {
+                if (search.feed(c)) {
+                    if (search.isDecided()) {
+                        return replace(search.getStart() - pendingOffset, search.getEnd() - pendingOffset, null);
+                    }
+                    return emitUpTo(search.safePosition() - pendingOffset);
+                }
+                // суррогат: до него Pattern видел бы то же самое, дальше ищем через него
+                search = null;
+                checked = emitted;
+            }
+            if (pending.length() - checked < CHECK_STEP) {
+                return true;
+            }
+            return check(false);
+        }
+
+        @Override
+        void finish() {
+            if (!done) {
+                if (search == null) {
+                    check(true);
+                } else if (search.getStart() >= 0) {
+                    replace(search.getStart() - pendingOffset, search.getEnd() - pendingOffset, null);
+                } else {
+                    emitUpTo(pending.length());
+                }
+            }
+            next.finish();
+        }
+
+        @Override
+        void reset() {
+            start();
+            next.reset();
+        }
+
+        private void start() {
+            pending.setLength(0);
+            emitted = 0;
+            pendingOffset = 0;
+            checked = 0;
+            done = false;
+            search = literalReplacement && regex.fastMatcher != null ? regex.fastMatcher.new Search() : null;
+        }
+
+        private boolean check(boolean end) {
+            checked = pending.length();
+            Matcher matcher = regex.pattern.matcher(pending);
+            matcher.useTransparentBounds(true).useAnchoringBounds(false).region(emitted, pending.length());
+            boolean found = matcher.find();
+            boolean windowFull = pending.length() - emitted >= MAX_WINDOW;
+            if (found && (end || !matcher.hitEnd() || windowFull)) {
+                return replace(matcher.start(), matcher.end(), matcher);
+            }
+            if (!found && (end || !matcher.hitEnd())) {
+                return emitUpTo(pending.length());
+            }
+            if (windowFull) {
+                return emitUpTo(pending.length() - MAX_WINDOW / 2);
+            }
+            return true;
+        }
+
+        /**
+         * Отдает pending до start, замену и остаток pending после end
+         *
+         * @param matcher если не null, замена строится через него (ссылки на группы в replacement)
+         */
+        private boolean replace(int start, int end, Matcher matcher) {
+            done = true;
+            boolean more = emit(pending, emitted, start);
+            if (more) {
+                if (matcher == null) {
+                    more = emit(replacement, 0, replacement.length());
+                } else {
+                    StringBuffer replaced = new StringBuffer();
+                    matcher.appendReplacement(replaced, replacement);
+                    more = emit(replaced, start, replaced.length());
+                }
+            }
+            if (more) {
+                more = emit(pending, end, pending.length());
+            }
+            pending.setLength(0);
+            pending.trimToSize();
+            return more;
+        }
+
+        private boolean emitUpTo(int position) {
+            if (position <= emitted) {
+                return true;
+            }
+            boolean more = emit(pending, emitted, position);
+            emitted = position;
+            int drop = emitted - LOOK_BEHIND;
+            if (drop >= COMPACT_THRESHOLD && drop * 2 >= pending.length()) {
+                pending.delete(0, drop);
+                pendingOffset += drop;
+                emitted -= drop;
+                checked -= drop;
+            }
+            return more;
+        }
+
+        private boolean emit(CharSequence text, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (!next.put(text.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
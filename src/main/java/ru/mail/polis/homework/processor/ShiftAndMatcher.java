@@ -0,0 +1,608 @@
+package ru.mail.polis.homework.processor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поиск первого вхождения для простых регулярных выражений без возвратов и без создания Matcher.
+ *
+ * Поддерживается подмножество: обычные символы, '.', классы [...] (диапазоны, отрицание, \d \s \w внутри),
+ * экранирование, группы (...) и (?:...), альтернатива '|', ограниченные повторы ?, {n}, {n,m} (жадные и ленивые).
+ * Такое выражение разворачивается в конечный список последовательностей "множество символов на каждую позицию"
+ * в том порядке, в котором их перебирал бы java.util.regex с возвратами. Поэтому из всех последовательностей,
+ * совпавших с самой левой позиции, Pattern выбрал бы первую по списку - ее и берем.
+ *
+ * Все последовательности вместе занимают не больше 64 позиций и проверяются одновременно алгоритмом Shift-And:
+ * бит j состояния означает, что позиция j совпала с текущим символом, а переход по символу - это сдвиг
+ * и одно AND с маской символа. Маски лежат в двухуровневой таблице: старший байт символа выбирает блок
+ * из 256 масок, одинаковые блоки хранятся один раз.
+ *
+ * Pattern работает с кодовыми точками, а этот поиск - с char, поэтому на суррогатах он сдается (UNSUPPORTED),
+ * и текст нужно проверить через Pattern.
+ */
+final class ShiftAndMatcher {
+
+    static final long NOT_FOUND = -1;
+    static final long UNSUPPORTED = -2;
+
+    private static final int MAX_POSITIONS = Long.SIZE;
+    /**
+     * Ограничение на число вариантов, чтобы пустые варианты вроде (|)(|)(|) не разрастались бесконечно
+     */
+    private static final int MAX_SEQUENCES = Long.SIZE;
+    private static final int BLOCK = 256;
+
+    private final int[] blockOffsets;
+    private final long[] masks;
+    private final long starts;
+    private final long finals;
+    /**
+     * Для последней позиции каждой последовательности: номер последовательности (он же приоритет) и ее длина
+     */
+    private final int[] sequenceOfBit;
+    private final int[] lengthOfBit;
+    private final int maxLength;
+
+    private ShiftAndMatcher(List<List<CharSet>> sequences) {
+        long[] flat = new long[Character.MAX_VALUE + 1];
+        sequenceOfBit = new int[MAX_POSITIONS];
+        lengthOfBit = new int[MAX_POSITIONS];
+        long startBits = 0;
+        long finalBits = 0;
+        int longest = 0;
+        int bit = 0;
+        for (int i = 0; i < sequences.size(); i++) {
+            List<CharSet> sequence = sequences.get(i);
+            startBits |= 1L << bit;
+            for (CharSet set : sequence) {
+                set.addTo(flat, 1L << bit);
+                bit++;
+            }
+            finalBits |= 1L << (bit - 1);
+            sequenceOfBit[bit - 1] = i;
+            lengthOfBit[bit - 1] = sequence.size();
+            longest = Math.max(longest, sequence.size());
+        }
+        starts = startBits;
+        finals = finalBits;
+        maxLength = longest;
+
+        blockOffsets = new int[BLOCK];
+        Map<Block, Integer> known = new HashMap<>();
+        List<long[]> blocks = new ArrayList<>();
+        for (int high = 0; high < BLOCK; high++) {
+            long[] block = Arrays.copyOfRange(flat, high * BLOCK, (high + 1) * BLOCK);
+            Integer index = known.get(new Block(block));
+            if (index == null) {
+                index = blocks.size();
+                known.put(new Block(block), index);
+                blocks.add(block);
+            }
+            blockOffsets[high] = index * BLOCK;
+        }
+        masks = new long[blocks.size() * BLOCK];
+        for (int i = 0; i < blocks.size(); i++) {
+            System.arraycopy(blocks.get(i), 0, masks, i * BLOCK, BLOCK);
+        }
+    }
+
+    /**
+     * @return null, если выражение не входит в поддерживаемое подмножество
+     */
+    static ShiftAndMatcher compile(String regex) {
+        try {
+            Parser parser = new Parser(regex);
+            List<List<CharSet>> sequences = parser.parse();
+            for (List<CharSet> sequence : sequences) {
+                if (sequence.isEmpty()) {
+                    // пустое совпадение: Pattern нашел бы его в начале текста, проще отдать ему
+                    return null;
+                }
+            }
+            return new ShiftAndMatcher(sequences);
+        } catch (UnsupportedRegexException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Самое длинное совпадение
+     */
+    int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Первое вхождение так, как его нашел бы Matcher.find().
+     *
+     * @return (start << 32) | end, либо NOT_FOUND, либо UNSUPPORTED, если в тексте встретился суррогат
+     */
+    long find(CharSequence text) {
+        long state = 0;
+        int bestStart = -1;
+        int bestSequence = 0;
+        int bestEnd = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isSurrogate(c)) {
+                return UNSUPPORTED;
+            }
+            state = (state << 1 | starts) & masks[blockOffsets[c >>> 8] | (c & 0xFF)];
+            long hits = state & finals;
+            while (hits != 0) {
+                int bit = Long.numberOfTrailingZeros(hits);
+                hits &= hits - 1;
+                int start = i + 1 - lengthOfBit[bit];
+                int sequence = sequenceOfBit[bit];
+                if (bestStart < 0 || start < bestStart || start == bestStart && sequence < bestSequence) {
+                    bestStart = start;
+                    bestSequence = sequence;
+                    bestEnd = i + 1;
+                }
+            }
+            // все совпадения, которые начинаются не правее bestStart, уже видны
+            if (bestStart >= 0 && i + 1 >= bestStart + maxLength) {
+                break;
+            }
+        }
+        return bestStart < 0 ? NOT_FOUND : (long) bestStart << 32 | bestEnd;
+    }
+
+    /**
+     * Потоковый поиск: символы приходят по одному, и первое вхождение становится известно окончательно,
+     * как только прочитано maxLength символов от его начала.
+     */
+    final class Search {
+        private long state;
+        private int position;
+        private int bestStart = -1;
+        private int bestSequence;
+        private int bestEnd;
+
+        /**
+         * @return false, если пришел суррогат и дальше этим поиском искать нельзя
+         */
+        boolean feed(char c) {
+            if (Character.isSurrogate(c)) {
+                return false;
+            }
+            state = (state << 1 | starts) & masks[blockOffsets[c >>> 8] | (c & 0xFF)];
+            position++;
+            long hits = state & finals;
+            while (hits != 0) {
+                int bit = Long.numberOfTrailingZeros(hits);
+                hits &= hits - 1;
+                int start = position - lengthOfBit[bit];
+                int sequence = sequenceOfBit[bit];
+                if (bestStart < 0 || start < bestStart || start == bestStart && sequence < bestSequence) {
+                    bestStart = start;
+                    bestSequence = sequence;
+                    bestEnd = position;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Первое вхождение уже не изменится, сколько бы символов ни пришло дальше
+         */
+        boolean isDecided() {
+            return bestStart >= 0 && position >= bestStart + maxLength;
+        }
+
+        /**
+         * Начало лучшего найденного вхождения, -1 если вхождений пока нет
+         */
+        int getStart() {
+            return bestStart;
+        }
+
+        int getEnd() {
+            return bestEnd;
+        }
+
+        /**
+         * Символы до этой позиции точно не войдут в первое вхождение
+         */
+        int safePosition() {
+            // более длинная последовательность еще может закончиться совпадением левее найденного
+            int safe = Math.max(0, position - maxLength + 1);
+            return bestStart >= 0 ? Math.min(bestStart, safe) : safe;
+        }
+    }
+
+    private static final class Block {
+        private final long[] masks;
+        private final int hash;
+
+        private Block(long[] masks) {
+            this.masks = masks;
+            this.hash = Arrays.hashCode(masks);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Block && Arrays.equals(masks, ((Block) o).masks);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Множество символов BMP в виде отсортированных непересекающихся отрезков [from, to]
+     */
+    private static final class CharSet {
+        private static final CharSet DIGITS = range('0', '9');
+        private static final CharSet SPACES = of(" \t\n\u000B\f\r");
+        private static final CharSet WORD = range('a', 'z').union(range('A', 'Z')).union(range('0', '9')).union(of("_"));
+        /**
+         * '.' без флагов: все, кроме символов конца строки
+         */
+        private static final CharSet DOT = of("\n\r\u0085\u2028\u2029").complement();
+
+        private final char[] ranges;
+
+        private CharSet(char[] ranges) {
+            this.ranges = ranges;
+        }
+
+        private static CharSet range(char from, char to) {
+            return new CharSet(new char[]{from, to});
+        }
+
+        private static CharSet of(String chars) {
+            CharSet result = new CharSet(new char[0]);
+            for (int i = 0; i < chars.length(); i++) {
+                result = result.union(range(chars.charAt(i), chars.charAt(i)));
+            }
+            return result;
+        }
+
+        private CharSet union(CharSet other) {
+            boolean[] member = new boolean[Character.MAX_VALUE + 1];
+            markTo(member);
+            other.markTo(member);
+            return fromMembers(member);
+        }
+
+        private CharSet complement() {
+            boolean[] member = new boolean[Character.MAX_VALUE + 1];
+            markTo(member);
+            for (int c = 0; c < member.length; c++) {
+                member[c] = !member[c];
+            }
+            return fromMembers(member);
+        }
+
+        private void markTo(boolean[] member) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                Arrays.fill(member, ranges[i], ranges[i + 1] + 1, true);
+            }
+        }
+
+        private void addTo(long[] masks, long bit) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                for (int c = ranges[i]; c <= ranges[i + 1]; c++) {
+                    masks[c] |= bit;
+                }
+            }
+        }
+
+        private static CharSet fromMembers(boolean[] member) {
+            StringBuilder ranges = new StringBuilder();
+            int c = 0;
+            while (c < member.length) {
+                if (!member[c]) {
+                    c++;
+                    continue;
+                }
+                int from = c;
+                while (c < member.length && member[c]) {
+                    c++;
+                }
+                ranges.append((char) from).append((char) (c - 1));
+            }
+            return new CharSet(ranges.toString().toCharArray());
+        }
+    }
+
+    private static final class UnsupportedRegexException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private UnsupportedRegexException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Рекурсивный спуск по выражению. Каждое правило возвращает список последовательностей
+     * в порядке перебора с возвратами.
+     */
+    private static final class Parser {
+        private final String regex;
+        private int pos;
+
+        private Parser(String regex) {
+            this.regex = regex;
+        }
+
+        private List<List<CharSet>> parse() throws UnsupportedRegexException {
+            List<List<CharSet>> result = alternation();
+            if (pos != regex.length()) {
+                throw new UnsupportedRegexException();
+            }
+            return result;
+        }
+
+        private List<List<CharSet>> alternation() throws UnsupportedRegexException {
+            List<List<CharSet>> result = new ArrayList<>(concatenation());
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                List<List<CharSet>> alternative = concatenation();
+                checkSize(positions(result) + positions(alternative), result.size() + alternative.size());
+                result.addAll(alternative);
+            }
+            return result;
+        }
+
+        private List<List<CharSet>> concatenation() throws UnsupportedRegexException {
+            List<List<CharSet>> result = single(new ArrayList<>());
+            while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+                List<List<CharSet>> atom = atom();
+                result = product(result, quantified(atom));
+            }
+            return result;
+        }
+
+        private List<List<CharSet>> atom() throws UnsupportedRegexException {
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case '(':
+                    if (regex.startsWith("?:", pos)) {
+                        pos += 2;
+                    } else if (pos < regex.length() && regex.charAt(pos) == '?') {
+                        throw new UnsupportedRegexException();
+                    }
+                    List<List<CharSet>> group = alternation();
+                    expect(')');
+                    return group;
+                case '[':
+                    return single(single(characterClass()));
+                case '.':
+                    return single(single(CharSet.DOT));
+                case '\\':
+                    return single(single(escape()));
+                case '^':
+                case '$':
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                case '}':
+                case ']':
+                    throw new UnsupportedRegexException();
+                default:
+                    return single(single(literal(c)));
+            }
+        }
+
+        /**
+         * Разворачивает повтор: для жадного сначала варианты с еще одним повтором, потом без него,
+         * для ленивого наоборот - ровно в таком порядке их перебирает Pattern.
+         */
+        private List<List<CharSet>> quantified(List<List<CharSet>> atom) throws UnsupportedRegexException {
+            if (pos == regex.length()) {
+                return atom;
+            }
+            int min;
+            int max;
+            char c = regex.charAt(pos);
+            if (c == '?') {
+                pos++;
+                min = 0;
+                max = 1;
+            } else if (c == '{') {
+                pos++;
+                min = number();
+                max = min;
+                if (pos < regex.length() && regex.charAt(pos) == ',') {
+                    pos++;
+                    max = number();
+                }
+                expect('}');
+            } else if (c == '*' || c == '+') {
+                throw new UnsupportedRegexException();
+            } else {
+                return atom;
+            }
+            boolean lazy = false;
+            if (pos < regex.length() && regex.charAt(pos) == '?') {
+                pos++;
+                lazy = true;
+            }
+            if (pos < regex.length() && "?*+{".indexOf(regex.charAt(pos)) >= 0 || min > max) {
+                throw new UnsupportedRegexException();
+            }
+            if (max > 1 || min == 0) {
+                for (List<CharSet> sequence : atom) {
+                    if (sequence.isEmpty()) {
+                        // у Pattern особые правила для повторов, совпавших с пустой строкой
+                        throw new UnsupportedRegexException();
+                    }
+                }
+            }
+            List<List<CharSet>> optional = single(new ArrayList<>());
+            for (int i = 0; i < max - min; i++) {
+                List<List<CharSet>> more = product(atom, optional);
+                checkSize(positions(more) + positions(optional), more.size() + 1);
+                List<List<CharSet>> next = new ArrayList<>();
+                if (lazy) {
+                    next.addAll(single(new ArrayList<>()));
+                    next.addAll(more);
+                } else {
+                    next.addAll(more);
+                    next.addAll(single(new ArrayList<>()));
+                }
+                optional = next;
+            }
+            List<List<CharSet>> result = optional;
+            for (int i = 0; i < min; i++) {
+                result = product(atom, result);
+            }
+            return result;
+        }
+
+        private CharSet characterClass() throws UnsupportedRegexException {
+            boolean negate = false;
+            if (pos < regex.length() && regex.charAt(pos) == '^') {
+                pos++;
+                negate = true;
+            }
+            if (pos < regex.length() && regex.charAt(pos) == ']') {
+                throw new UnsupportedRegexException();
+            }
+            CharSet result = new CharSet(new char[0]);
+            boolean first = true;
+            while (true) {
+                if (pos >= regex.length()) {
+                    throw new UnsupportedRegexException();
+                }
+                char c = regex.charAt(pos++);
+                if (c == ']') {
+                    break;
+                }
+                if (c == '[' || c == '&' && pos < regex.length() && regex.charAt(pos) == '&') {
+                    throw new UnsupportedRegexException();
+                }
+                if (c == '-' && !first && (pos >= regex.length() || regex.charAt(pos) != ']')) {
+                    // дефис после диапазона вроде [a-b-c] Pattern понимает по-своему
+                    throw new UnsupportedRegexException();
+                }
+                first = false;
+                CharSet member = c == '\\' ? escape() : literal(c);
+                if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    char to = regex.charAt(pos++);
+                    if (to == '[') {
+                        throw new UnsupportedRegexException();
+                    }
+                    CharSet end = to == '\\' ? escape() : literal(to);
+                    if (!isSingle(member) || !isSingle(end) || end.ranges[0] < member.ranges[0]) {
+                        throw new UnsupportedRegexException();
+                    }
+                    member = CharSet.range(member.ranges[0], end.ranges[0]);
+                }
+                result = result.union(member);
+            }
+            return negate ? result.complement() : result;
+        }
+
+        private CharSet escape() throws UnsupportedRegexException {
+            if (pos >= regex.length()) {
+                throw new UnsupportedRegexException();
+            }
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case 'd':
+                    return CharSet.DIGITS;
+                case 'D':
+                    return CharSet.DIGITS.complement();
+                case 's':
+                    return CharSet.SPACES;
+                case 'S':
+                    return CharSet.SPACES.complement();
+                case 'w':
+                    return CharSet.WORD;
+                case 'W':
+                    return CharSet.WORD.complement();
+                case 't':
+                    return literal('\t');
+                case 'n':
+                    return literal('\n');
+                case 'r':
+                    return literal('\r');
+                case 'f':
+                    return literal('\f');
+                default:
+                    if (Character.isLetterOrDigit(c)) {
+                        throw new UnsupportedRegexException();
+                    }
+                    return literal(c);
+            }
+        }
+
+        private int number() throws UnsupportedRegexException {
+            int start = pos;
+            while (pos < regex.length() && regex.charAt(pos) >= '0' && regex.charAt(pos) <= '9') {
+                pos++;
+            }
+            if (pos == start || pos - start > 2) {
+                throw new UnsupportedRegexException();
+            }
+            return Integer.parseInt(regex.substring(start, pos));
+        }
+
+        private void expect(char c) throws UnsupportedRegexException {
+            if (pos >= regex.length() || regex.charAt(pos) != c) {
+                throw new UnsupportedRegexException();
+            }
+            pos++;
+        }
+
+        private static CharSet literal(char c) throws UnsupportedRegexException {
+            if (Character.isSurrogate(c)) {
+                throw new UnsupportedRegexException();
+            }
+            return CharSet.range(c, c);
+        }
+
+        private static boolean isSingle(CharSet set) {
+            return set.ranges.length == 2 && set.ranges[0] == set.ranges[1];
+        }
+
+        private static <T> List<T> single(T element) {
+            List<T> result = new ArrayList<>();
+            result.add(element);
+            return result;
+        }
+
+        /**
+         * Все пары "вариант слева, потом вариант справа"; левый выбор меняется медленнее, как при переборе
+         */
+        private static List<List<CharSet>> product(List<List<CharSet>> left, List<List<CharSet>> right)
+                throws UnsupportedRegexException {
+            checkSize((long) positions(left) * right.size() + (long) positions(right) * left.size(),
+                    (long) left.size() * right.size());
+            List<List<CharSet>> result = new ArrayList<>(left.size() * right.size());
+            for (List<CharSet> first : left) {
+                for (List<CharSet> second : right) {
+                    List<CharSet> sequence = new ArrayList<>(first.size() + second.size());
+                    sequence.addAll(first);
+                    sequence.addAll(second);
+                    result.add(sequence);
+                }
+            }
+            return result;
+        }
+
+        private static int positions(List<List<CharSet>> sequences) {
+            int count = 0;
+            for (List<CharSet> sequence : sequences) {
+                count += sequence.size();
+            }
+            return count;
+        }
+
+        private static void checkSize(long positions, long sequences) throws UnsupportedRegexException {
+            if (positions > MAX_POSITIONS || sequences > MAX_SEQUENCES) {
+                throw new UnsupportedRegexException();
+            }
+        }
+    }
+}
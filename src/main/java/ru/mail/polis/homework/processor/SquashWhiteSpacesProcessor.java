@@ -0,0 +1,66 @@
+package ru.mail.polis.homework.processor;
+
+import java.util.regex.Pattern;
+
+final class SquashWhiteSpacesProcessor implements FusibleProcessor {
+
+    private static final Pattern WHITE_SPACES = Pattern.compile("\\s+");
+
+    /**
+     * То же, что \s в регулярных выражениях: [ \t\n\x0B\f\r]
+     */
+    static boolean isWhiteSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    @Override
+    public ProcessingStage getStage() {
+        return ProcessingStage.PRE_PROCESSING;
+    }
+
+    @Override
+    public String process(String text) {
+        return WHITE_SPACES.matcher(text).replaceAll(" ");
+    }
+
+    /**
+     * Серия пробелов любой длины дает один символ, так что вход не ограничить. Зато само звено
+     * останавливается, как только выдало сколько нужно.
+     */
+    @Override
+    public int inputLimit(int outputLimit) {
+        return UNBOUNDED;
+    }
+
+    @Override
+    public CharStage stage(CharStage next) {
+        return new Stage(next);
+    }
+
+    private static final class Stage extends CharStage {
+        private boolean inWhiteSpace;
+
+        private Stage(CharStage next) {
+            super(next);
+        }
+
+        @Override
+        boolean put(char c) {
+            if (!isWhiteSpace(c)) {
+                inWhiteSpace = false;
+                return next.put(c);
+            }
+            if (inWhiteSpace) {
+                return true;
+            }
+            inWhiteSpace = true;
+            return next.put(' ');
+        }
+
+        @Override
+        void reset() {
+            inWhiteSpace = false;
+            next.reset();
+        }
+    }
+}
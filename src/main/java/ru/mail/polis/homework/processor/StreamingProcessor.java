@@ -0,0 +1,13 @@
+package ru.mail.polis.homework.processor;
+
+/**
+ * Обработчик, который умеет работать с текстом, приходящим по символу, и держит в памяти
+ * не больше ограниченного окна (см. TextProcessorManager.processText(Reader, Writer)).
+ */
+interface StreamingProcessor extends TextProcessor {
+
+    /**
+     * Новое звено конвейера, которое делает то же, что process, и передает результат в next
+     */
+    CharStage stage(CharStage next);
+}
@@ -14,6 +14,27 @@ package ru.mail.polis.homework.processor;
  */
 public interface TextProcessor {
 
+    ProcessingStage getStage();
+
+    /**
+     * @param text не null
+     */
+    String process(String text);
+
+    /**
+     * То же, что process, но вход и результат - CharSequence. Обработчики, которые меняют символы по одному,
+     * возвращают ленивое представление над входом: символы вычисляются при charAt, а копия делается,
+     * только если у результата вызвать toString. Так цепочка таких обработчиков копирует текст
+     * не больше одного раза.
+     *
+     * Представление ссылается на вход, поэтому вход нельзя менять, пока представление используется.
+     *
+     * @param text не null
+     */
+    default CharSequence view(CharSequence text) {
+        return process(text.toString());
+    }
+
     /**
      * Схлопывает все пустые символы в один пробел.
      * Более формально, заменить каждую подстроку, удовлетворяющую регулярному выражению \s+ на 1 пробел.
@@ -21,7 +42,7 @@ public interface TextProcessor {
      * Стадия: препроцессинг
      */
     static TextProcessor squashWhiteSpacesProcessor() {
-        return null;
+        return new SquashWhiteSpacesProcessor();
     }
 
     /**
@@ -31,7 +52,7 @@ public interface TextProcessor {
      * Стадия: процессинг
      */
     static TextProcessor replaceFirstProcessor(String regex, String replacement) {
-        return null;
+        return new ReplaceFirstProcessor(regex, replacement);
     }
 
     /**
@@ -43,15 +64,18 @@ public interface TextProcessor {
      * @param maxLength неотрицательное число
      */
     static TextProcessor trimProcessor(int maxLength) {
-        return null;
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("Max length must be non-negative: " + maxLength);
+        }
+        return new TrimProcessor(maxLength);
     }
 
     /**
-     * Обработчик заменяет все символы на заглавные
+     * Обработчик заменяет все символы на заглавные (по правилам Locale.ROOT, не зависит от локали машины)
      *
      * Стадия: постпроцессинг
      */
     static TextProcessor upperCaseProcessor() {
-        return null;
+        return new UpperCaseProcessor();
     }
 }
@@ -1,5 +1,17 @@
 package ru.mail.polis.homework.processor;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 /**
  * Задание: написать систему обработки текста.
  * Надо реализовать 4 обработчика текста
@@ -30,16 +42,176 @@ package ru.mail.polis.homework.processor;
  *
  * Базовая обвязка класса 2 балла + 3 балла за валидацию. Итого 5
  * Суммарно, по всему заданию 15 баллов
+ * <p>
+ * Подряд идущие посимвольные обработчики (схлопывание пробелов, заглавные буквы, обрезание) при создании менеджера
+ * сливаются в один FusedProcessor, который проходит текст один раз и не создает промежуточных строк.
+ * <p>
+ * Если цепочка заканчивается обрезанием, то при создании менеджера от конца к началу считается, сколько символов
+ * результата нужно от каждой стадии (см. LengthBounded). Слитые стадии останавливаются, когда выдали столько,
+ * а если первая стадия не слитая, ей сразу отдается только нужное начало текста.
+ * <p>
+ * Большие документы можно обрабатывать потоком через processText(Reader, Writer): каждая стадия превращается
+ * в звено CharStage, и в памяти держится только ограниченное окно текста.
  */
 public class TextProcessorManager {
 
-    private static final TextProcessorManager EMPTY = null;
+    private static final int READ_CHUNK = 8192;
+    /**
+     * Меньше этого кусок пакета не делится: на коротких кусках накладные расходы fork/join дороже обработки.
+     */
+    private static final int MIN_BATCH_CHUNK = 64;
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private static final TextProcessorManager EMPTY = new TextProcessorManager(new TextProcessor[0]);
+
+    /**
+     * Обработчики после слияния посимвольных в FusedProcessor
+     */
+    private final TextProcessor[] processors;
+    /**
+     * Сколько первых символов исходного текста достаточно для результата
+     */
+    private final int inputLimit;
 
     private TextProcessorManager(TextProcessor[] processors) {
+        int[] outputLimits = outputLimits(processors);
+        this.processors = fuse(processors, outputLimits);
+        if (processors.length == 0 || processors[0] instanceof FusibleProcessor) {
+            // слитая стадия сама остановится, обрезать текст заранее - лишнее копирование
+            this.inputLimit = LengthBounded.UNBOUNDED;
+        } else {
+            this.inputLimit = inputLimit(processors[0], outputLimits[0]);
+        }
     }
 
     public String processText(String text) {
-        return null;
+        if (text == null) {
+            return null;
+        }
+        String result = text.length() > inputLimit ? text.substring(0, inputLimit) : text;
+        for (TextProcessor processor : processors) {
+            result = processor.process(result);
+        }
+        return result;
+    }
+
+    /**
+     * Пакетная обработка: тексты делятся на куски и обрабатываются параллельно в общем ForkJoinPool.
+     * Результат такой же, как если бы вызвать processText для каждого текста по очереди.
+     * Промежуточные буферы у каждого потока свои и переиспользуются, так что на каждый текст
+     * выделяется память в основном под сам результат.
+     */
+    public List<String> processAll(List<String> texts) {
+        return processAll(texts, ForkJoinPool.commonPool());
+    }
+
+    public List<String> processAll(List<String> texts, ForkJoinPool pool) {
+        if (!(texts instanceof RandomAccess)) {
+            texts = new ArrayList<>(texts);
+        }
+        String[] results = new String[texts.size()];
+        if (results.length > 0) {
+            int threshold = Math.max(MIN_BATCH_CHUNK, results.length / (pool.getParallelism() * CHUNKS_PER_WORKER));
+            pool.invoke(new ProcessTask(texts, results, 0, results.length, threshold));
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Результаты идут в порядке следования элементов стрима.
+     */
+    public List<String> processAll(Stream<String> texts) {
+        return processAll(texts.collect(Collectors.toList()));
+    }
+
+    /**
+     * То же, что processText, но без лишних копий: обработчики, которые меняют символы по одному
+     * (заглавные буквы, обрезание), возвращают ленивые представления (см. TextProcessor.view),
+     * так что результат копируется не больше одного раза - при toString, а если нужны только charAt и length,
+     * то ни разу.
+     */
+    public CharSequence processView(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+        CharSequence result = TrimProcessor.prefix(text, inputLimit);
+        for (TextProcessor processor : processors) {
+            result = processor.view(result);
+        }
+        return result;
+    }
+
+    /**
+     * Потоковая обработка: текст читается из reader кусками по READ_CHUNK символов, результат пишется в writer.
+     * Схлопывание пробелов и заглавные буквы работают через границы кусков, обрезание перестает читать,
+     * когда набрало нужное число символов, а замена держит в памяти только окно вокруг возможного совпадения
+     * (подробности в ReplaceFirstProcessor). Свои реализации TextProcessor получают текст целиком.
+     * Потоки не закрываются, writer не сбрасывается.
+     */
+    public void processText(Reader reader, Writer writer) throws IOException {
+        CharStage head = new WriterStage(writer);
+        for (int i = processors.length - 1; i >= 0; i--) {
+            if (processors[i] instanceof StreamingProcessor) {
+                head = ((StreamingProcessor) processors[i]).stage(head);
+            } else {
+                head = new BufferingStage(processors[i], head);
+            }
+        }
+        try {
+            char[] buffer = new char[READ_CHUNK];
+            int read;
+            reading:
+            while ((read = reader.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    if (!head.put(buffer[i])) {
+                        break reading;
+                    }
+                }
+            }
+            head.finish();
+        } catch (WriteFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * outputLimits[i] - сколько первых символов результата i-го обработчика нужно следующим
+     */
+    private static int[] outputLimits(TextProcessor[] processors) {
+        int[] limits = new int[processors.length];
+        int limit = LengthBounded.UNBOUNDED;
+        for (int i = processors.length - 1; i >= 0; i--) {
+            limits[i] = limit;
+            limit = inputLimit(processors[i], limit);
+        }
+        return limits;
+    }
+
+    private static int inputLimit(TextProcessor processor, int outputLimit) {
+        if (processor instanceof LengthBounded) {
+            return ((LengthBounded) processor).inputLimit(outputLimit);
+        }
+        return LengthBounded.UNBOUNDED;
+    }
+
+    private static TextProcessor[] fuse(TextProcessor[] processors, int[] outputLimits) {
+        List<TextProcessor> result = new ArrayList<>();
+        List<FusibleProcessor> run = new ArrayList<>();
+        for (int i = 0; i < processors.length; i++) {
+            if (processors[i] instanceof FusibleProcessor) {
+                run.add((FusibleProcessor) processors[i]);
+                continue;
+            }
+            if (!run.isEmpty()) {
+                result.add(new FusedProcessor(run, outputLimits[i - 1]));
+                run.clear();
+            }
+            result.add(processors[i]);
+        }
+        if (!run.isEmpty()) {
+            result.add(new FusedProcessor(run, LengthBounded.UNBOUNDED));
+        }
+        return result.toArray(new TextProcessor[0]);
     }
 
     public static TextProcessorManager construct(TextProcessor[] processors) {
@@ -49,8 +221,147 @@ public class TextProcessorManager {
         return new TextProcessorManager(processors);
     }
 
+    /**
+     * Обрабатывает тексты с from по to, результаты пишет в свою часть общего массива
+     */
+    private class ProcessTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> texts;
+        private final String[] results;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        private ProcessTask(List<String> texts, String[] results, int from, int to, int threshold) {
+            this.texts = texts;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int i = from; i < to; i++) {
+                    results[i] = processText(texts.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ProcessTask(texts, results, from, middle, threshold),
+                    new ProcessTask(texts, results, middle, to, threshold));
+        }
+    }
+
+    /**
+     * Последнее звено потоковой обработки: копит символы и пишет их в writer кусками
+     */
+    private static final class WriterStage extends CharStage {
+        private final Writer writer;
+        private final char[] buffer = new char[READ_CHUNK];
+        private int size;
+
+        private WriterStage(Writer writer) {
+            super(null);
+            this.writer = writer;
+        }
+
+        @Override
+        boolean put(char c) {
+            if (size == buffer.length) {
+                flush();
+            }
+            buffer[size++] = c;
+            return true;
+        }
+
+        @Override
+        void finish() {
+            flush();
+        }
+
+        @Override
+        void reset() {
+            size = 0;
+        }
+
+        private void flush() {
+            try {
+                writer.write(buffer, 0, size);
+                size = 0;
+            } catch (IOException e) {
+                throw new WriteFailure(e);
+            }
+        }
+    }
+
+    /**
+     * Ошибка writer, которую WriterStage передает через звенья CharStage (их методы не бросают IOException).
+     * Свой тип, чтобы processText разворачивал только ее, а UncheckedIOException из обработчика шла как есть.
+     */
+    private static final class WriteFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private WriteFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * Звено для обработчика, который не умеет работать потоком: собирает весь его вход и обрабатывает в конце
+     */
+    private static final class BufferingStage extends CharStage {
+        private final TextProcessor processor;
+        private final StringBuilder text = new StringBuilder();
+
+        private BufferingStage(TextProcessor processor, CharStage next) {
+            super(next);
+            this.processor = processor;
+        }
+
+        @Override
+        boolean put(char c) {
+            text.append(c);
+            return true;
+        }
+
+        @Override
+        void finish() {
+            String result = processor.process(text.toString());
+            for (int i = 0; i < result.length(); i++) {
+                if (!next.put(result.charAt(i))) {
+                    break;
+                }
+            }
+            next.finish();
+        }
+
+        @Override
+        void reset() {
+            text.setLength(0);
+            next.reset();
+        }
+    }
+
     // visible for tests
     static boolean isValidSequence(TextProcessor[] processors) {
+        if (processors == null) {
+            return false;
+        }
+        ProcessingStage previous = ProcessingStage.PRE_PROCESSING;
+        for (TextProcessor processor : processors) {
+            if (processor == null || processor.getStage().compareTo(previous) < 0) {
+                return false;
+            }
+            previous = processor.getStage();
+        }
         return true;
     }
 }
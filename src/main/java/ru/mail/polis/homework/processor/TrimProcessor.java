@@ -0,0 +1,115 @@
+package ru.mail.polis.homework.processor;
+
+final class TrimProcessor implements FusibleProcessor {
+
+    private final int maxLength;
+
+    TrimProcessor(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    int getMaxLength() {
+        return maxLength;
+    }
+
+    @Override
+    public ProcessingStage getStage() {
+        return ProcessingStage.POST_PROCESSING;
+    }
+
+    @Override
+    public String process(String text) {
+        return text.length() <= maxLength ? text : text.substring(0, maxLength);
+    }
+
+    @Override
+    public CharSequence view(CharSequence text) {
+        return prefix(text, maxLength);
+    }
+
+    @Override
+    public boolean hasLazyView() {
+        return true;
+    }
+
+    /**
+     * Первые length символов text без копирования
+     */
+    static CharSequence prefix(CharSequence text, int length) {
+        return text.length() <= length ? text : new Prefix(text, length);
+    }
+
+    @Override
+    public int inputLimit(int outputLimit) {
+        return Math.min(outputLimit, maxLength);
+    }
+
+    @Override
+    public CharStage stage(CharStage next) {
+        return new Stage(next, maxLength);
+    }
+
+    private static final class Prefix implements CharSequence {
+        private final CharSequence text;
+        private final int length;
+
+        private Prefix(CharSequence text, int length) {
+            this.text = text;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || start > end || end > length) {
+                throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+            }
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text.subSequence(0, length).toString();
+        }
+    }
+
+    /**
+     * Пропускает первые maxLength символов и сообщает, что больше ничего не нужно
+     */
+    private static final class Stage extends CharStage {
+        private final int maxLength;
+        private int count;
+
+        private Stage(CharStage next, int maxLength) {
+            super(next);
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        boolean put(char c) {
+            if (count >= maxLength) {
+                return false;
+            }
+            count++;
+            return next.put(c) && count < maxLength;
+        }
+
+        @Override
+        void reset() {
+            count = 0;
+            next.reset();
+        }
+    }
+}
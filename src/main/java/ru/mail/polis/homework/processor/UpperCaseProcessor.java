@@ -0,0 +1,176 @@
+package ru.mail.polis.homework.processor;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+final class UpperCaseProcessor implements FusibleProcessor {
+
+    @Override
+    public ProcessingStage getStage() {
+        return ProcessingStage.POST_PROCESSING;
+    }
+
+    @Override
+    public String process(String text) {
+        return text.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Каждая кодовая точка дает хотя бы один символ, а занимает не больше двух
+     */
+    @Override
+    public int inputLimit(int outputLimit) {
+        return outputLimit > UNBOUNDED / 2 ? UNBOUNDED : outputLimit * 2;
+    }
+
+    /**
+     * Ленивое представление возможно, только если каждый символ переходит ровно в один:
+     * в тексте нет символов вроде "ß" -> "SS" и суррогатов. Это проверяется одним проходом без копирования,
+     * иначе текст обрабатывается как обычно.
+     */
+    @Override
+    public CharSequence view(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isSurrogate(c)
+                    || UpperCaseTable.UPPER[c] == UpperCaseTable.EXPANDED && c != UpperCaseTable.EXPANDED) {
+                return process(text.toString());
+            }
+        }
+        return new UpperCaseView(text);
+    }
+
+    @Override
+    public boolean hasLazyView() {
+        return true;
+    }
+
+    @Override
+    public CharStage stage(CharStage next) {
+        return new Stage(next);
+    }
+
+    /**
+     * Посимвольно делает то же, что String.toUpperCase(Locale.ROOT): для Locale.ROOT заглавная буква
+     * не зависит от соседних символов, поэтому ее можно брать из таблицы по одному символу.
+     * Суррогатная пара переводится целиком, как одна кодовая точка.
+     */
+    private static final class Stage extends CharStage {
+        private char pendingHigh;
+        private boolean hasPending;
+
+        private Stage(CharStage next) {
+            super(next);
+        }
+
+        @Override
+        boolean put(char c) {
+            if (hasPending) {
+                hasPending = false;
+                if (Character.isLowSurrogate(c)) {
+                    int upper = Character.toUpperCase(Character.toCodePoint(pendingHigh, c));
+                    if (Character.isBmpCodePoint(upper)) {
+                        return next.put((char) upper);
+                    }
+                    return next.put(Character.highSurrogate(upper)) && next.put(Character.lowSurrogate(upper));
+                }
+                if (!next.put(pendingHigh)) {
+                    return false;
+                }
+            }
+            if (Character.isHighSurrogate(c)) {
+                pendingHigh = c;
+                hasPending = true;
+                return true;
+            }
+            char upper = UpperCaseTable.UPPER[c];
+            if (upper != UpperCaseTable.EXPANDED || c == UpperCaseTable.EXPANDED) {
+                return next.put(upper);
+            }
+            String expansion = UpperCaseTable.EXPANSIONS.get(c);
+            for (int i = 0; i < expansion.length(); i++) {
+                if (!next.put(expansion.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void finish() {
+            if (hasPending) {
+                hasPending = false;
+                next.put(pendingHigh);
+            }
+            next.finish();
+        }
+
+        @Override
+        void reset() {
+            hasPending = false;
+            next.reset();
+        }
+    }
+
+    /**
+     * Текст, у которого каждый символ заменен на заглавный. Вход проверен: в нем нет символов,
+     * которые становятся несколькими, и суррогатов.
+     */
+    private static final class UpperCaseView implements CharSequence {
+        private final CharSequence text;
+
+        private UpperCaseView(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return UpperCaseTable.UPPER[text.charAt(index)];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new UpperCaseView(text.subSequence(start, end));
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[text.length()];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = UpperCaseTable.UPPER[text.charAt(i)];
+            }
+            return new String(chars);
+        }
+    }
+
+    /**
+     * Заглавная буква для каждого символа BMP. Строится при первом использовании конвейера.
+     */
+    private static final class UpperCaseTable {
+        /**
+         * Метка символа, который становится несколькими символами ("ß" -> "SS").
+         * Сам U+FFFF - не буква и переходит в себя.
+         */
+        private static final char EXPANDED = '\uFFFF';
+        private static final char[] UPPER = new char[Character.MAX_VALUE + 1];
+        private static final Map<Character, String> EXPANSIONS = new HashMap<>();
+
+        static {
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                String upper = String.valueOf((char) c).toUpperCase(Locale.ROOT);
+                if (upper.length() == 1) {
+                    UPPER[c] = upper.charAt(0);
+                } else {
+                    UPPER[c] = EXPANDED;
+                    EXPANSIONS.put((char) c, upper);
+                }
+            }
+        }
+    }
+}
@@ -2,9 +2,17 @@ package ru.mail.polis.homework.analyzer;
 
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class TextFilterManagerTest {
@@ -87,6 +95,89 @@ public class TextFilterManagerTest {
         assertEquals("GOOD", manager.analyze("Ооооооочень длиннннннаааааяяяя стрроооооооккккаааааа").toString());
     }
 
+    @Test
+    public void analyzeSpamOverlappingWords() {
+        TextFilterManager manager = new TextFilterManager(
+                new TextAnalyzer[]{TextAnalyzer.createSpamAnalyzer(new String[]{"he", "she", "his", "hers"})});
+        assertEquals("SPAM", manager.analyze("ushers").toString());
+        assertEquals("SPAM", manager.analyze("ahishers").toString());
+        assertEquals("GOOD", manager.analyze("hHiIsS").toString());
+
+        manager = new TextFilterManager(
+                new TextAnalyzer[]{TextAnalyzer.createSpamAnalyzer(new String[]{"abcd", "bcx", "", "cxy"})});
+        assertEquals("SPAM", manager.analyze("abcxy").toString());
+        assertEquals("GOOD", manager.analyze("abcabdbcd").toString());
+    }
+
+    @Test
+    public void analyzeSpamBigDictionary() {
+        String[] spam = new String[20_000];
+        for (int i = 0; i < spam.length; i++) {
+            spam[i] = "spam" + i + "#";
+        }
+        TextFilterManager manager = new TextFilterManager(
+                new TextAnalyzer[]{TextAnalyzer.createSpamAnalyzer(spam)});
+        assertEquals("SPAM", manager.analyze("купите spam19999# недорого").toString());
+        assertEquals("SPAM", manager.analyze("spam0#").toString());
+        assertEquals("GOOD", manager.analyze("spam20000# spam-1#").toString());
+    }
+
+    @Test
+    public void analyzeTokenSpam() {
+        String[] spam = new String[100_000];
+        for (int i = 0; i < spam.length - 2; i++) {
+            spam[i] = "слово" + i;
+        }
+        spam[spam.length - 2] = "смс";
+        spam[spam.length - 1] = "код из";
+        TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{
+                TextAnalyzer.createSpamAnalyzer(spam, SpamMode.TOKEN),
+                TextAnalyzer.createNegativeTextAnalyzer()});
+        assertEquals("SPAM", manager.analyze("Скажите смс").toString());
+        assertEquals("SPAM", manager.analyze("смс, пожалуйста :(").toString());
+        assertEquals("SPAM", manager.analyze("Привет слово99997!").toString());
+        assertEquals("SPAM", manager.analyze("Скажите код из сообщения").toString());
+        assertEquals("GOOD", manager.analyze("Пришлите смску").toString());
+        assertEquals("GOOD", manager.analyze("слово100000 слово-1").toString());
+        assertEquals("NEGATIVE_TEXT", manager.analyze("Пришлите смску :(").toString());
+        assertEquals("GOOD", manager.analyze("").toString());
+    }
+
+    @Test
+    public void analyzeOnlyCustomFilter() {
+        TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{TextAnalyzer.createCustomAnalyzer(3)});
+        assertEquals("GOOD", manager.analyze("Привет, я Петя :(").toString());
+        assertEquals("GOOD", manager.analyze("").toString());
+        assertEquals("GOOD", manager.analyze(null).toString());
+        assertEquals("GOOD", manager.analyze("Ууу, ааа!!!").toString());
+        assertEquals("CUSTOM", manager.analyze("Ооооооочень длиннннннаааааяяяя стрроооооооккккаааааа").toString());
+        assertEquals("CUSTOM", manager.analyze("Ну!!!!").toString());
+    }
+
+    @Test
+    public void analyzeWithOwnFilter() {
+        TextAnalyzer shouting = new TextAnalyzer() {
+            @Override
+            public FilterType getType() {
+                return FilterType.NEGATIVE_TEXT;
+            }
+
+            @Override
+            public boolean analyze(String text) {
+                return text.contains("!!!");
+            }
+        };
+        TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{
+                TextAnalyzer.createCustomAnalyzer(3),
+                shouting,
+                TextAnalyzer.createSpamAnalyzer(new String[]{"смс"})});
+        assertEquals("NEGATIVE_TEXT", manager.analyze("Ну!!!!").toString());
+        assertEquals("NEGATIVE_TEXT", manager.analyze("Ура!!!").toString());
+        assertEquals("SPAM", manager.analyze("смс!!!").toString());
+        assertEquals("CUSTOM", manager.analyze("Ууууу").toString());
+        assertEquals("GOOD", manager.analyze("Ура!!").toString());
+    }
+
     @Test
     public void analyzeAllFiltersGood() {
         TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{
@@ -122,6 +213,295 @@ public class TextFilterManagerTest {
         manyFilters(true);
     }
 
+    @Test
+    public void analyzeAllBatch() {
+        TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{
+                TextAnalyzer.createNegativeTextAnalyzer(),
+                TextAnalyzer.createSpamAnalyzer(new String[]{"пинкод", "смс", "cvv"}),
+                TextAnalyzer.createTooLongAnalyzer(20)});
+        String[] samples = {"Привет, я Петя :(", "Скажите Код Из Смс :-(", "смс пожалуйста ;|", "Привет", null};
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            texts.add(samples[i % samples.length]);
+        }
+
+        BatchAnalysis result = manager.analyzeAll(texts);
+        assertEquals(texts.size(), result.size());
+        for (int i = 0; i < texts.size(); i++) {
+            assertEquals(manager.analyze(texts.get(i)), result.getVerdict(i));
+        }
+        assertEquals(2_000, result.getCount(FilterType.SPAM));
+        assertEquals(2_000, result.getCount(FilterType.TOO_LONG));
+        assertEquals(2_000, result.getCount(FilterType.NEGATIVE_TEXT));
+        assertEquals(0, result.getCount(FilterType.CUSTOM));
+        assertEquals(4_000, (long) result.getCounts().get(FilterType.GOOD));
+
+        assertEquals(result.getVerdicts(), manager.analyzeAll(texts.stream()).getVerdicts());
+        assertEquals(0, manager.analyzeAll(new ArrayList<>()).size());
+    }
+
+    @Test
+    public void analyzeChunks() {
+        TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{
+                TextAnalyzer.createNegativeTextAnalyzer(),
+                TextAnalyzer.createSpamAnalyzer(new String[]{"пинкод", "смс", "cvv"})});
+        AnalysisSession session = manager.newSession();
+        assertFalse(session.feed(CharBuffer.wrap("Скажите :( пин")));
+        assertFalse(session.feed(CharBuffer.wrap("ко")));
+        assertTrue(session.feed(CharBuffer.wrap("д пожалуйста")));
+        assertEquals("SPAM", session.finish().toString());
+
+        session = manager.newSession();
+        assertFalse(session.feed("Скажите код :"));
+        assertFalse(session.feed("("));
+        assertEquals("NEGATIVE_TEXT", session.finish().toString());
+    }
+
+    @Test
+    public void analyzeStreamStopsAfterMaxLength() throws IOException {
+        TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{
+                TextAnalyzer.createTooLongAnalyzer(100_000),
+                TextAnalyzer.createNegativeTextAnalyzer()});
+        CountingReader reader = new CountingReader(Long.MAX_VALUE);
+        assertEquals("TOO_LONG", manager.analyzeStream(reader).toString());
+        assertTrue(reader.read > 100_000 && reader.read < 200_000);
+
+        assertEquals("GOOD", manager.analyzeStream(new CountingReader(100_000)).toString());
+        assertEquals("NEGATIVE_TEXT", manager.analyzeStream(new StringReader("ой :(")).toString());
+    }
+
+    @Test
+    public void analyzeStreamEmptyText() throws IOException {
+        TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{
+                TextAnalyzer.createTooLongAnalyzer(-1),
+                TextAnalyzer.createNegativeTextAnalyzer()});
+        // пустой текст длиннее отрицательного предела, и поток должен сказать то же, что и analyze
+        assertEquals("TOO_LONG", manager.analyze("").toString());
+        assertEquals("TOO_LONG", manager.analyzeStream(new StringReader("")).toString());
+        assertEquals("TOO_LONG", manager.newSession().finish().toString());
+
+        manager = new TextFilterManager(new TextAnalyzer[]{TextAnalyzer.createTooLongAnalyzer(0)});
+        assertEquals("GOOD", manager.analyzeStream(new StringReader("")).toString());
+        assertEquals("TOO_LONG", manager.analyzeStream(new StringReader("a")).toString());
+    }
+
+    private static class CountingReader extends Reader {
+        private final long length;
+        private long read;
+
+        CountingReader(long length) {
+            this.length = length;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int count) {
+            if (read == length) {
+                return -1;
+            }
+            int n = (int) Math.min(count, length - read);
+            for (int i = 0; i < n; i++) {
+                buffer[offset + i] = 'a';
+            }
+            read += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void analyzeWithMetrics() {
+        FilterMetrics metrics = new FilterMetrics();
+        TextAnalyzer exclamation = new TextAnalyzer() {
+            @Override
+            public FilterType getType() {
+                return FilterType.CUSTOM;
+            }
+
+            @Override
+            public boolean analyze(String text) {
+                return text.endsWith("!");
+            }
+        };
+        TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{
+                TextAnalyzer.createNegativeTextAnalyzer(),
+                TextAnalyzer.createSpamAnalyzer(new String[]{"пинкод", "смс", "cvv"}),
+                TextAnalyzer.createTooLongAnalyzer(20),
+                exclamation}).withMetrics(metrics);
+        assertEquals("NEGATIVE_TEXT", manager.analyze("Привет, я Петя :(").toString());
+        assertEquals("TOO_LONG", manager.analyze("Скажите Код Из Смс :-(").toString());
+        assertEquals("SPAM", manager.analyze("смс пожалуйста ;|").toString());
+        assertEquals("SPAM", manager.analyze("cvv!").toString());
+        assertEquals("GOOD", manager.analyze("Привет").toString());
+        assertEquals("CUSTOM", manager.analyze("Привет!").toString());
+        assertEquals("GOOD", manager.analyze(null).toString());
+
+        // проверка длины, общий проход и свой фильтр замеряются по отдельности,
+        // свой фильтр запускается, только когда он может дать тип важнее найденного
+        FilterMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(6, snapshot.get(FilterType.TOO_LONG).getInvocations());
+        assertEquals(1, snapshot.get(FilterType.TOO_LONG).getHits());
+        assertEquals(6, snapshot.getFusedPass().getInvocations());
+        assertEquals(3, snapshot.getFusedPass().getHits());
+        assertEquals(2, snapshot.get(FilterType.CUSTOM).getInvocations());
+        assertEquals(1, snapshot.get(FilterType.CUSTOM).getHits());
+        assertEquals(0, snapshot.get(FilterType.SPAM).getInvocations());
+        assertEquals(0, snapshot.get(FilterType.NEGATIVE_TEXT).getInvocations());
+        assertNull(snapshot.get(FilterType.GOOD));
+        assertEquals(6, Arrays.stream(snapshot.getFusedPass().getLatencyHistogram()).sum());
+        assertTrue(snapshot.getFusedPass().getLatencyPercentileNanos(50) > 0);
+
+        assertEquals(6, metrics.snapshotAndReset().getFusedPass().getInvocations());
+        assertEquals(0, metrics.snapshot().getFusedPass().getInvocations());
+        assertEquals(0, Arrays.stream(metrics.snapshot().getFusedPass().getLatencyHistogram()).sum());
+
+        // с адаптивным порядком числа значат то же самое
+        assertEquals("GOOD", manager.withAdaptiveOrder().analyze("Привет").toString());
+        snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.get(FilterType.TOO_LONG).getInvocations());
+        assertEquals(1, snapshot.getFusedPass().getInvocations());
+        assertEquals(0, snapshot.getFusedPass().getHits());
+        assertEquals(1, snapshot.get(FilterType.CUSTOM).getInvocations());
+        assertEquals(0, snapshot.get(FilterType.CUSTOM).getHits());
+    }
+
+    @Test
+    public void analyzeAdaptiveOrder() {
+        int[] slowCalls = new int[1];
+        TextAnalyzer slow = new TextAnalyzer() {
+            @Override
+            public FilterType getType() {
+                return FilterType.NEGATIVE_TEXT;
+            }
+
+            @Override
+            public boolean analyze(String text) {
+                slowCalls[0]++;
+                long hash = 0;
+                for (int i = 0; i < 1_000; i++) {
+                    hash = hash * 31 + text.hashCode();
+                }
+                return hash == 42;
+            }
+        };
+        TextFilterManager plain = new TextFilterManager(new TextAnalyzer[]{
+                slow,
+                TextAnalyzer.createSpamAnalyzer(new String[]{"пинкод", "смс", "cvv"}),
+                TextAnalyzer.createTooLongAnalyzer(20)});
+        TextFilterManager adaptive = plain.withAdaptiveOrder();
+        String[] texts = {"Скажите Код Из Смс :-(", "смс пожалуйста ;|", "Привет", "Очень, очень, очень длинный текст"};
+        for (int i = 0; i < 50_000; i++) {
+            String text = texts[i % texts.length];
+            assertEquals(plain.analyze(text), adaptive.analyze(text));
+        }
+
+        // TOO_LONG дешевый и часто срабатывает, так что к этому моменту он проверяется раньше медленного фильтра,
+        // а после срабатывания TOO_LONG медленный фильтр (NEGATIVE_TEXT) уже не нужен
+        slowCalls[0] = 0;
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals("TOO_LONG", adaptive.analyze("Очень, очень, очень длинный текст").toString());
+        }
+        assertTrue(slowCalls[0] < 100);
+    }
+
+    @Test
+    public void analyzeWithCache() {
+        int[] calls = new int[1];
+        TextAnalyzer counting = new TextAnalyzer() {
+            @Override
+            public FilterType getType() {
+                return FilterType.CUSTOM;
+            }
+
+            @Override
+            public boolean analyze(String text) {
+                calls[0]++;
+                return text.startsWith("!");
+            }
+        };
+        VerdictCache cache = new VerdictCache(2);
+        TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{
+                counting,
+                TextAnalyzer.createSpamAnalyzer(new String[]{"смс"})}).withCache(cache);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("CUSTOM", manager.analyze("!Купите слона").toString());
+            assertEquals("SPAM", manager.analyze("!Скажите код из смс").toString());
+        }
+        assertEquals(1, calls[0]);
+        assertEquals(198, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+
+        assertEquals("GOOD", manager.analyze("Привет").toString());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+        assertEquals("GOOD", manager.analyze(null).toString());
+    }
+
+    @Test
+    public void analyzeWithCacheEvictsLeastRecentlyUsed() {
+        List<String> checked = new ArrayList<>();
+        TextAnalyzer recording = new TextAnalyzer() {
+            @Override
+            public FilterType getType() {
+                return FilterType.CUSTOM;
+            }
+
+            @Override
+            public boolean analyze(String text) {
+                checked.add(text);
+                return false;
+            }
+        };
+        VerdictCache cache = new VerdictCache(3);
+        TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{recording}).withCache(cache);
+        for (String text : new String[]{"раз", "два", "три", "раз", "четыре", "три", "раз", "два", "четыре"}) {
+            manager.analyze(text);
+        }
+        // "раз" использовали перед "четыре", поэтому вытесняется "два", а потом "четыре"
+        assertEquals(Arrays.asList("раз", "два", "три", "четыре", "два", "четыре"), checked);
+        assertEquals(3, cache.getHitCount());
+        assertEquals(3, cache.getEvictionCount());
+        assertEquals(3, cache.size());
+
+        // рабочее множество, которое помещается в кеш, не вытесняется, как бы ни распределились ключи
+        assertEquals(16, countMisses(new VerdictCache(16), 16, recording));
+        assertEquals(20, countMisses(new VerdictCache(100), 20, recording));
+    }
+
+    private static long countMisses(VerdictCache cache, int workingSet, TextAnalyzer filter) {
+        TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{filter}).withCache(cache);
+        for (int i = 0; i < 50 * workingSet; i++) {
+            manager.analyze("Текст номер " + i % workingSet);
+        }
+        return cache.getMissCount();
+    }
+
+    @Test
+    public void analyzeAfterReload() throws Exception {
+        TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{
+                TextAnalyzer.createSpamAnalyzer(new String[]{"смс"}),
+                TextAnalyzer.createNegativeTextAnalyzer()});
+        TextFilterManager cached = manager.withCache(new VerdictCache(16));
+        assertEquals("SPAM", cached.analyze("Скажите код из смс :(").toString());
+        assertEquals("GOOD", cached.analyze("Назовите пинкод").toString());
+
+        manager.reloadSpam(new String[]{"пинкод"}, SpamMode.TOKEN);
+        assertEquals("NEGATIVE_TEXT", cached.analyze("Скажите код из смс :(").toString());
+        assertEquals("SPAM", cached.analyze("Назовите пинкод").toString());
+        assertEquals("SPAM", manager.analyze("Назовите пинкод").toString());
+
+        AnalysisSession session = manager.newSession();
+        session.feed("Назовите пин");
+        manager.reloadAsync(new TextAnalyzer[]{TextAnalyzer.createTooLongAnalyzer(5)}, Runnable::run).get();
+        session.feed("код");
+        assertEquals("SPAM", session.finish().toString());
+        assertEquals("TOO_LONG", cached.analyze("Назовите пинкод").toString());
+        assertEquals("GOOD", cached.analyze(":(").toString());
+    }
+
     private void manyFilters(boolean withPriority) {
         TextFilterManager manager = new TextFilterManager(new TextAnalyzer[]{
                 TextAnalyzer.createNegativeTextAnalyzer(),
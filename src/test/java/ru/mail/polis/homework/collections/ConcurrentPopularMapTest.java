@@ -0,0 +1,88 @@
+package ru.mail.polis.homework.collections;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentPopularMapTest {
+
+    @Test
+    public void popularKey_operationCount() {
+        ConcurrentPopularMap<TestObject, TestObjectValue> popularMap = new ConcurrentPopularMap<>();
+        TestObject key = new TestObject("key");
+        TestObjectValue value = new TestObjectValue("value");
+        popularMap.get(key);
+        popularMap.remove(key);
+        popularMap.put(key, value);
+        popularMap.put(key, value);
+        popularMap.get(key);
+        popularMap.remove(key);
+        popularMap.remove(key);
+        popularMap.put(key, value);
+        popularMap.remove(key);
+
+        assertEquals(key, popularMap.getPopularKey());
+        assertEquals(9, popularMap.getKeyPopularity(key));
+        assertEquals(value, popularMap.getPopularValue());
+        assertEquals(7, popularMap.getValuePopularity(value));
+    }
+
+    @Test
+    public void popularIterator() {
+        ConcurrentPopularMap<TestObject, TestObjectValue> popularMap = new ConcurrentPopularMap<>();
+        TestObject key = new TestObject("key");
+        TestObjectValue value1 = new TestObjectValue("value1");
+        TestObjectValue value2 = new TestObjectValue("value2");
+        popularMap.put(key, value1);
+        popularMap.put(key, value2);
+        popularMap.get(key);
+        popularMap.get(key);
+
+        Iterator<TestObjectValue> it = popularMap.popularIterator();
+        assertEquals(value1, it.next());
+        assertEquals(value2, it.next());
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void popularKey_manyThreads() throws Exception {
+        ConcurrentPopularMap<TestObject, TestObjectValue> popularMap = new ConcurrentPopularMap<>();
+        int threads = 8;
+        int operations = 10_000;
+        TestObject hot = new TestObject("hot");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < operations; i++) {
+                    popularMap.get(hot);
+                    popularMap.put(new TestObject("key" + thread + "_" + (i % 100)), new TestObjectValue("value"));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(hot, popularMap.getPopularKey());
+        assertEquals(threads * operations, popularMap.getKeyPopularity(hot));
+        assertEquals(new TestObjectValue("value"), popularMap.getPopularValue());
+        assertEquals(threads * operations * 2 - threads * 100,
+                popularMap.getValuePopularity(new TestObjectValue("value")));
+        assertEquals(threads * 100, popularMap.size());
+    }
+}
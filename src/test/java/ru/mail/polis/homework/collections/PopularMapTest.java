@@ -1,6 +1,12 @@
 package ru.mail.polis.homework.collections;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -86,6 +92,23 @@ public class PopularMapTest {
 
 
 
+    @Test
+    public void popularKey_tieAndOvertake() {
+        TestObject key1 = new TestObject("key1");
+        TestObject key2 = new TestObject("key2");
+        TestObjectValue value = new TestObjectValue("value");
+        popularMap1.put(key1, value);
+        popularMap1.get(key1);
+        popularMap1.get(key2);
+        popularMap1.containsKey(key2);
+        assertEquals(key1, popularMap1.getPopularKey());
+
+        popularMap1.remove(key2);
+        assertEquals(key2, popularMap1.getPopularKey());
+        assertEquals(3, popularMap1.getKeyPopularity(key2));
+        assertEquals(2, popularMap1.getKeyPopularity(key1));
+    }
+
     @Test
     public void popularValue_OnlyPutOne() {
 
@@ -171,6 +194,165 @@ public class PopularMapTest {
         assertEquals(3, i);
     }
 
+    @Test
+    public void topKeysAndValues() {
+        TestObject key1 = new TestObject("key1");
+        TestObject key2 = new TestObject("key2");
+        TestObject key3 = new TestObject("key3");
+        TestObjectValue value1 = new TestObjectValue("value1");
+        TestObjectValue value2 = new TestObjectValue("value2");
+        popularMap1.put(key1, value1);
+        popularMap1.put(key2, value2);
+        popularMap1.put(key3, value2);
+        popularMap1.get(key2);
+        popularMap1.get(key3);
+        popularMap1.get(key3);
+
+        assertEquals(Arrays.asList(key3, key2), popularMap1.topKeys(2));
+        assertEquals(Arrays.asList(key3, key2, key1), popularMap1.topKeys(10));
+        assertEquals(Arrays.asList(value2, value1), popularMap1.topValues(5));
+        assertTrue(popularMap1.topValues(0).isEmpty());
+    }
+
+    @Test
+    public void bounded_evictsLeastPopular() {
+        PopularMap<TestObject, TestObjectValue> cache = PopularMap.bounded(2);
+        TestObject key1 = new TestObject("key1");
+        TestObject key2 = new TestObject("key2");
+        TestObject key3 = new TestObject("key3");
+        TestObjectValue value = new TestObjectValue("value");
+        cache.put(key1, value);
+        cache.put(key2, value);
+        cache.get(key1);
+        cache.put(key3, value);
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.containsKey(key1));
+        assertTrue(cache.containsKey(key3));
+        assertFalse(cache.containsKey(key2));
+    }
+
+    @Test
+    public void bounded_agingEvictsOldHotKey() {
+        PopularMap<TestObject, TestObjectValue> cache = PopularMap.bounded(2, true);
+        TestObject old = new TestObject("old");
+        TestObjectValue value = new TestObjectValue("value");
+        cache.put(old, value);
+        for (int i = 0; i < 5; i++) {
+            cache.get(old);
+        }
+        for (int i = 0; i < 10; i++) {
+            TestObject key = new TestObject("key" + i);
+            cache.put(key, value);
+            cache.get(key);
+        }
+
+        assertFalse(cache.keySet().contains(old));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void bounded_nullValues() {
+        PopularMap<TestObject, TestObjectValue> cache = PopularMap.bounded(2);
+        TestObject nullKey = new TestObject("null");
+        cache.put(nullKey, null);
+        cache.put(nullKey, null);
+        for (int i = 0; i < 4; i++) {
+            cache.put(new TestObject("key" + i), new TestObjectValue("value" + i));
+        }
+        assertEquals(2, cache.size());
+
+        PopularMap<TestObject, TestObjectValue> removed = PopularMap.bounded(2);
+        TestObject key1 = new TestObject("key1");
+        TestObject key2 = new TestObject("key2");
+        removed.put(nullKey, null);
+        for (int i = 0; i < 3; i++) {
+            removed.get(nullKey);
+        }
+        removed.remove(nullKey);
+        removed.put(key1, new TestObjectValue("value1"));
+        removed.put(key2, new TestObjectValue("value2"));
+        assertEquals(2, removed.size());
+        assertTrue(removed.containsKey(key1));
+        assertTrue(removed.containsKey(key2));
+    }
+
+    @Test
+    public void bounded_popularityStaysBounded() {
+        PopularMap<TestObject, TestObjectValue> cache = PopularMap.bounded(4);
+        TestObjectValue shared = new TestObjectValue("shared");
+        TestObject first = new TestObject("key0");
+        for (int i = 0; i < 1000; i++) {
+            TestObject key = new TestObject("key" + i);
+            cache.put(key, i % 2 == 0 ? shared : new TestObjectValue("value" + i));
+            cache.get(key);
+            cache.get(new TestObject("missing" + i));
+            cache.containsValue(new TestObjectValue("missing" + i));
+            if (i % 3 == 1) {
+                cache.remove(key);
+            }
+        }
+
+        assertEquals(4, cache.size());
+        assertTrue(cache.topKeys(Integer.MAX_VALUE).size() <= 4);
+        assertTrue(cache.topValues(Integer.MAX_VALUE).size() <= 4);
+        assertEquals(0, cache.getKeyPopularity(first));
+        for (TestObject key : cache.topKeys(Integer.MAX_VALUE)) {
+            assertTrue(cache.keySet().contains(key));
+        }
+        for (TestObjectValue value : cache.topValues(Integer.MAX_VALUE)) {
+            assertTrue(cache.values().contains(value));
+        }
+
+        cache.clear();
+        assertTrue(cache.topKeys(Integer.MAX_VALUE).isEmpty());
+        assertTrue(cache.topValues(Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void window_oldPopularityExpires() {
+        ManualClock clock = new ManualClock();
+        PopularMap<TestObject, TestObjectValue> windowed =
+                new PopularMap<>(new HashMap<>(), Duration.ofMinutes(10), 10, clock);
+        TestObject old = new TestObject("old");
+        TestObject fresh = new TestObject("fresh");
+        TestObjectValue value = new TestObjectValue("value");
+        for (int i = 0; i < 5; i++) {
+            windowed.put(old, value);
+        }
+        clock.advance(Duration.ofMinutes(5));
+        windowed.put(fresh, value);
+        windowed.get(fresh);
+        assertEquals(old, windowed.getPopularKey());
+
+        clock.advance(Duration.ofMinutes(6));
+        assertEquals(fresh, windowed.getPopularKey());
+        assertEquals(0, windowed.getKeyPopularity(old));
+        assertEquals(2, windowed.getKeyPopularity(fresh));
+        assertEquals(2, windowed.getValuePopularity(value));
+    }
+
+    @Test
+    public void approximate_heavyHitters() {
+        PopularMap<TestObject, TestObjectValue> approximate = PopularMap.approximate(0.01, 0.01);
+        TestObject hot = new TestObject("hot");
+        TestObjectValue value = new TestObjectValue("value");
+        for (int i = 0; i < 100_000; i++) {
+            approximate.put(new TestObject("key" + i), new TestObjectValue("value" + i));
+            if (i % 10 == 0) {
+                approximate.put(hot, value);
+            }
+        }
+
+        assertEquals(hot, approximate.getPopularKey());
+        assertEquals(value, approximate.getPopularValue());
+        int total = 110_000;
+        int hotPopularity = approximate.getKeyPopularity(hot);
+        assertTrue(hotPopularity >= 10_000 && hotPopularity <= 10_000 + total / 100);
+        int coldPopularity = approximate.getKeyPopularity(new TestObject("key5"));
+        assertTrue(coldPopularity >= 1 && coldPopularity <= 1 + total / 100);
+    }
+
     @Test
     public void isEmpty() {
         popularMap2.isEmpty();
@@ -243,4 +425,32 @@ public class PopularMapTest {
         popularMap2.entrySet();
         verify(map, times(1)).entrySet();
     }
-}
\ No newline at end of file
+
+    private static class ManualClock extends Clock {
+        private long millis;
+
+        void advance(Duration duration) {
+            millis += duration.toMillis();
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
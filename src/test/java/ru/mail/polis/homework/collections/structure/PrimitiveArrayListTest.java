@@ -0,0 +1,76 @@
+package ru.mail.polis.homework.collections.structure;
+
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrimitiveArrayListTest {
+
+    @Test
+    public void intAddGetRemove() {
+        IntArrayList list = new IntArrayList();
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+        }
+        list.add(0, -1);
+        assertEquals(101, list.size());
+        assertEquals(-1, list.get(0));
+        assertEquals(99, list.get(100));
+
+        assertEquals(-1, list.removeAt(0));
+        assertEquals(50, list.set(50, 500));
+        assertEquals(50, list.indexOf(500));
+        assertFalse(list.contains(50));
+        assertEquals(100, list.size());
+    }
+
+    @Test
+    public void intIteratorAndStream() {
+        IntArrayList list = new IntArrayList(2);
+        list.addAll(new int[]{3, 1, 2});
+        PrimitiveIterator.OfInt iterator = list.iterator();
+        assertEquals(3, iterator.nextInt());
+        assertEquals(1, iterator.nextInt());
+        assertEquals(2, iterator.nextInt());
+        assertFalse(iterator.hasNext());
+
+        assertEquals(6, list.stream().sum());
+        assertArrayEquals(new int[]{1, 2, 3}, list.stream().sorted().toArray());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void intIteratorEmpty() {
+        new IntArrayList().iterator().nextInt();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void intGetOutOfBounds() {
+        IntArrayList list = new IntArrayList(10);
+        list.add(1);
+        list.get(1);
+    }
+
+    @Test
+    public void longAndDouble() {
+        LongArrayList timestamps = new LongArrayList();
+        timestamps.add(1_600_000_000_000L);
+        timestamps.add(1_700_000_000_000L);
+        assertEquals(1_700_000_000_000L, timestamps.get(1));
+        assertEquals(3_300_000_000_000L, timestamps.stream().sum());
+        assertEquals(1_600_000_000_000L, timestamps.iterator().nextLong());
+
+        DoubleArrayList values = new DoubleArrayList();
+        values.add(0.5);
+        values.add(Double.NaN);
+        assertTrue(values.contains(Double.NaN));
+        assertEquals(0.5, values.removeAt(0), 0);
+        assertEquals(1, values.size());
+        assertTrue(Double.isNaN(values.stream().sum()));
+    }
+}
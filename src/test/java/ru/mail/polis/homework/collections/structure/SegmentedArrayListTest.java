@@ -0,0 +1,53 @@
+package ru.mail.polis.homework.collections.structure;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentedArrayListTest {
+
+    @Test
+    public void addAndGetAcrossChunks() {
+        List<Integer> list = new SegmentedArrayList<>(4);
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+        }
+        assertEquals(100, list.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) list.get(i));
+        }
+    }
+
+    @Test
+    public void insertAndRemoveInTheMiddle() {
+        List<Integer> list = new SegmentedArrayList<>(4);
+        list.addAll(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+        list.add(3, 30);
+        list.add(0, -1);
+        assertEquals(Arrays.asList(-1, 0, 1, 2, 30, 3, 4, 5, 6, 7, 8, 9), list);
+
+        assertEquals(30, (int) list.remove(4));
+        assertEquals(-1, (int) list.remove(0));
+        assertEquals(9, (int) list.remove(list.size() - 1));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8), list);
+    }
+
+    @Test
+    public void clearAndReuse() {
+        List<Integer> list = new SegmentedArrayList<>(4);
+        list.addAll(Arrays.asList(1, 2, 3, 4, 5));
+        list.clear();
+        assertTrue(list.isEmpty());
+        list.add(10);
+        assertEquals(10, (int) list.get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void chunkSizeMustBePowerOfTwo() {
+        new SegmentedArrayList<Integer>(6);
+    }
+}
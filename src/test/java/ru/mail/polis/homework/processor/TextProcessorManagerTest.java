@@ -2,10 +2,20 @@ package ru.mail.polis.homework.processor;
 
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 
 public class TextProcessorManagerTest {
 
@@ -177,6 +187,208 @@ public class TextProcessorManagerTest {
         assertEquals(" BAC A YYZ", manager.processText("\t  CAA  B\t   \t  \nXyz    \t\tD\ne\n"));
     }
 
+    @Test
+    public void processReplaceFirstRegex() {
+        TextProcessorManager manager = TextProcessorManager.construct(new TextProcessor[] {
+                TextProcessor.replaceFirstProcessor("(?:cvv|pin)\\s?\\d{3,4}", "***")
+        });
+        assertEquals("my *** ok", manager.processText("my pin 1234 ok"));
+        assertEquals("cvv12 ***", manager.processText("cvv12 cvv1235"));
+        assertEquals("no code", manager.processText("no code"));
+
+        manager = TextProcessorManager.construct(new TextProcessor[] {
+                TextProcessor.replaceFirstProcessor("a|ab", "[$0]"),
+                TextProcessor.replaceFirstProcessor("[^a-z]{1,2}?", "_")
+        });
+        assertEquals("x_a]b12", manager.processText("xab12"));
+        assertEquals("_\uD801\uDC28", manager.processText("\uD801\uDC00\uD801\uDC28"));
+    }
+
+    @Test
+    public void processFusedProcessors() {
+        TextProcessorManager manager = TextProcessorManager.construct(new TextProcessor[] {
+                TextProcessor.squashWhiteSpacesProcessor(),
+                TextProcessor.upperCaseProcessor(),
+                TextProcessor.trimProcessor(8),
+                TextProcessor.upperCaseProcessor()
+        });
+        assertEquals(" STRASSE", manager.processText("\t straße  \n ist lang"));
+        assertEquals("A B", manager.processText("a\n\nb"));
+        String normalized = "HELLO";
+        assertTrue(normalized == manager.processText(normalized));
+        assertEquals("HELLO WO", manager.processText("HELLO WORLD"));
+        assertEquals("\uD801\uDC00 A", manager.processText("\uD801\uDC28\r\na"));
+    }
+
+    @Test
+    public void processLongTextWithTrim() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            text.append("pin  \t 1234, ");
+        }
+        TextProcessorManager manager = TextProcessorManager.construct(new TextProcessor[] {
+                TextProcessor.squashWhiteSpacesProcessor(),
+                TextProcessor.replaceFirstProcessor("\\d{4}", "****"),
+                TextProcessor.replaceFirstProcessor("pin\\s", ""),
+                TextProcessor.upperCaseProcessor(),
+                TextProcessor.trimProcessor(12)
+        });
+        assertEquals("****, PIN 12", manager.processText(text.toString()));
+
+        manager = TextProcessorManager.construct(new TextProcessor[] {
+                TextProcessor.replaceFirstProcessor("(?:, ){2}", "!"),
+                TextProcessor.trimProcessor(14)
+        });
+        assertEquals("pin  \t 1234, p", manager.processText(text.toString()));
+        assertEquals("a!b", manager.processText("a, , b"));
+    }
+
+    @Test
+    public void processAllBatch() {
+        TextProcessorManager manager = TextProcessorManager.construct(new TextProcessor[] {
+                TextProcessor.squashWhiteSpacesProcessor(),
+                TextProcessor.replaceFirstProcessor("A B", "B A"),
+                TextProcessor.replaceFirstProcessor("(C)A", "$1"),
+                TextProcessor.upperCaseProcessor(),
+                TextProcessor.trimProcessor(10),
+        });
+        String[] samples = {"\t  A  B\tC    \t\tD\ne\n", "CAB", "ABA", "", null};
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            texts.add(samples[i % samples.length]);
+        }
+
+        List<String> result = manager.processAll(texts);
+        assertEquals(texts.size(), result.size());
+        for (int i = 0; i < texts.size(); i++) {
+            assertEquals(manager.processText(texts.get(i)), result.get(i));
+        }
+        assertEquals(" B A C D E", result.get(0));
+        assertEquals("CB", result.get(1));
+        assertNull(result.get(4));
+
+        assertEquals(result, manager.processAll(texts.stream()));
+        assertEquals(0, manager.processAll(new ArrayList<>()).size());
+    }
+
+    @Test
+    public void processView() {
+        TextProcessorManager manager = TextProcessorManager.construct(new TextProcessor[] {
+                TextProcessor.replaceFirstProcessor("pin", "***"),
+                TextProcessor.upperCaseProcessor(),
+                TextProcessor.trimProcessor(6)
+        });
+        StringBuilder text = new StringBuilder("hello, world");
+        CharSequence view = manager.processView(text);
+        assertEquals(6, view.length());
+        assertEquals('H', view.charAt(0));
+        assertEquals("ELL", view.subSequence(1, 4).toString());
+        assertEquals("HELLO,", view.toString());
+        assertEquals("***, S", manager.processView("pin, straße").toString());
+        assertEquals("STRASS", manager.processView("straße").toString());
+        assertNull(manager.processView(null));
+
+        manager = TextProcessorManager.construct(new TextProcessor[] {
+                TextProcessor.squashWhiteSpacesProcessor(),
+                TextProcessor.trimProcessor(20)
+        });
+        String normalized = "a b c";
+        assertTrue(normalized == manager.processView(normalized));
+        assertEquals("a b c ", manager.processView(new StringBuilder("a \t b\nc  ")).toString());
+    }
+
+    @Test
+    public void processStream() throws IOException {
+        TextProcessorManager manager = TextProcessorManager.construct(new TextProcessor[] {
+                TextProcessor.squashWhiteSpacesProcessor(),
+                TextProcessor.replaceFirstProcessor("b c", "$0!"),
+                TextProcessor.upperCaseProcessor()
+        });
+        StringWriter writer = new StringWriter();
+        manager.processText(new StringReader("a\t\tb \n c\n"), writer);
+        assertEquals("A B C! ", writer.toString());
+
+        manager = TextProcessorManager.construct(new TextProcessor[] {
+                TextProcessor.squashWhiteSpacesProcessor(),
+                TextProcessor.replaceFirstProcessor("\\s", "_"),
+                TextProcessor.trimProcessor(10)
+        });
+        RepeatingReader reader = new RepeatingReader("ab  \t");
+        writer = new StringWriter();
+        manager.processText(reader, writer);
+        assertEquals("ab_ab ab a", writer.toString());
+        assertTrue(reader.read < 100_000);
+    }
+
+    @Test
+    public void processStreamWriterFailure() {
+        TextProcessorManager manager = TextProcessorManager.construct(new TextProcessor[] {
+                TextProcessor.upperCaseProcessor()
+        });
+        Writer broken = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try {
+            manager.processText(new StringReader("abc"), broken);
+            fail();
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void processStreamProcessorFailure() throws IOException {
+        TextProcessor failing = new TextProcessor() {
+            @Override
+            public ProcessingStage getStage() {
+                return ProcessingStage.PROCESSING;
+            }
+
+            @Override
+            public String process(String text) {
+                throw new UncheckedIOException(new IOException("dictionary is not available"));
+            }
+        };
+        // исключение самого обработчика не выдается за ошибку reader или writer
+        TextProcessorManager.construct(new TextProcessor[] {failing})
+                .processText(new StringReader("abc"), new StringWriter());
+    }
+
+    /**
+     * Бесконечный текст из повторов одной строки
+     */
+    private static class RepeatingReader extends Reader {
+        private final String chunk;
+        private long read;
+
+        RepeatingReader(String chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int count) {
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = chunk.charAt((int) (read++ % chunk.length()));
+            }
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     private static boolean isValid(TextProcessor ... processors) {
         return TextProcessorManager.isValidSequence(processors);
     }